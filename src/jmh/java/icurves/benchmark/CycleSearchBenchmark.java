@@ -0,0 +1,106 @@
+package icurves.benchmark;
+
+import icurves.benchmark.legacy.LegacyElementaryCyclesSearch;
+import icurves.decomposition.DecomposerFactory;
+import icurves.description.AbstractBasicRegion;
+import icurves.description.AbstractCurve;
+import icurves.description.Description;
+import icurves.diagram.BasicRegion;
+import icurves.diagram.Curve;
+import icurves.diagram.DiagramCreator;
+import icurves.graph.EulerDualEdge;
+import icurves.graph.MED;
+import icurves.graph.cycles.ElementaryCyclesSearch;
+import icurves.layout.LayoutSettings;
+import icurves.recomposition.RecomposerFactory;
+import icurves.recomposition.RecompositionStep;
+import icurves.util.Examples;
+import icurves.util.Profiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@link ElementaryCyclesSearch}, sequential and parallel, with its original
+ * Vector-based version on the MED used to embed the last curve of an example.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CycleSearchBenchmark {
+
+    // from a few hundred to a few hundred thousand cycles
+    @Param({
+            "Venn-4", "Venn-5",
+            "Single Piercing 1", "Single Piercing 2",
+            "Double Piercing", "Double Piercing 3",
+            "Combined Piercing 1",
+            "Edge Route 2"
+    })
+    public String example;
+
+    private boolean[][] adjMatrix;
+    private Object[] nodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Profiler.setEnabled(false);
+
+        LayoutSettings settings = LayoutSettings.DEFAULT;
+
+        Description description = Examples.INSTANCE.getList()
+                .stream()
+                .filter(pair -> pair.getFirst().equals(example))
+                .map(pair -> pair.getSecond())
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown example: " + example));
+
+        List<RecompositionStep> rSteps = RecomposerFactory.newRecomposer()
+                .recompose(DecomposerFactory.newDecomposer(settings.getDecompType()).decompose(description));
+
+        DiagramCreator creator = new DiagramCreator(settings);
+        creator.createDiagram(description, rSteps.subList(0, rSteps.size() - 1));
+
+        Map<AbstractCurve, Curve> curves = new LinkedHashMap<>(creator.getCurveToContour());
+
+        List<BasicRegion> basicRegions = creator.getBasicRegions()
+                .stream()
+                .map(r -> new BasicRegion(r.getAbRegion(), curves, settings))
+                .collect(Collectors.toList());
+
+        MED med = new MED(basicRegions, new BasicRegion(AbstractBasicRegion.OUTSIDE, curves, settings), curves, settings, null);
+
+        nodes = med.nodes.toArray();
+        adjMatrix = new boolean[nodes.length][nodes.length];
+
+        for (EulerDualEdge edge : med.edges) {
+            int i = med.nodes.indexOf(edge.getV1());
+            int j = med.nodes.indexOf(edge.getV2());
+
+            adjMatrix[i][j] = true;
+            adjMatrix[j][i] = true;
+        }
+    }
+
+    @Benchmark
+    public List legacy() {
+        return new LegacyElementaryCyclesSearch(adjMatrix, nodes).getElementaryCycles();
+    }
+
+    @Benchmark
+    public List primitive() {
+        return new ElementaryCyclesSearch(adjMatrix, nodes).getElementaryCycles();
+    }
+
+    @Benchmark
+    public List primitiveParallel() {
+        return new ElementaryCyclesSearch(adjMatrix, nodes, true).getElementaryCycles();
+    }
+}
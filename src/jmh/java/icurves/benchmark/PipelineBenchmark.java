@@ -0,0 +1,129 @@
+package icurves.benchmark;
+
+import icurves.decomposition.DecomposerFactory;
+import icurves.decomposition.DecompositionStep;
+import icurves.description.AbstractBasicRegion;
+import icurves.description.AbstractCurve;
+import icurves.description.Description;
+import icurves.diagram.BasicRegion;
+import icurves.diagram.Curve;
+import icurves.diagram.DiagramCreator;
+import icurves.graph.EulerDualEdge;
+import icurves.graph.EulerDualNode;
+import icurves.graph.GraphCycle;
+import icurves.graph.MED;
+import icurves.layout.LayoutSettings;
+import icurves.recomposition.RecomposerFactory;
+import icurves.recomposition.RecompositionStep;
+import icurves.util.Examples;
+import icurves.util.Profiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks each stage of the pipeline on the {@link Examples} corpus.
+ * MED benchmarks use the diagram just before its last curve is added,
+ * i.e. the MED that is used to embed the last curve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    // "Multidiagram 1" is not included since it is not connected
+    @Param({
+            "Venn-3", "Venn-4", "Venn-5",
+            "Nested Piercing 1",
+            "Single Piercing 1", "Single Piercing 2", "Single Piercing 3",
+            "Double Piercing", "Double Piercing 1", "Double Piercing 2", "Double Piercing 3", "Double Piercing 4",
+            "Combined Piercing 1", "Combined Piercing 2", "Combined Piercing 3",
+            "Combined All 1", "Combined All 2", "Combined All 3", "Combined All 4",
+            "Edge Route", "Edge Route 1", "Edge Route 2"
+    })
+    public String example;
+
+    private LayoutSettings settings = LayoutSettings.DEFAULT;
+
+    private Description description;
+    private List<DecompositionStep> dSteps;
+    private List<RecompositionStep> rSteps;
+
+    private List<AbstractBasicRegion> regions;
+    private Map<AbstractCurve, Curve> curves;
+    private List<AbstractBasicRegion> zonesToSplit;
+    private MED med;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Profiler.setEnabled(false);
+
+        description = Examples.INSTANCE.getList()
+                .stream()
+                .filter(pair -> pair.getFirst().equals(example))
+                .map(pair -> pair.getSecond())
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown example: " + example));
+
+        dSteps = DecomposerFactory.newDecomposer(settings.getDecompType()).decompose(description);
+        rSteps = RecomposerFactory.newRecomposer().recompose(dSteps);
+
+        DiagramCreator creator = new DiagramCreator(settings);
+        creator.createDiagram(description, rSteps.subList(0, rSteps.size() - 1));
+
+        regions = creator.getBasicRegions()
+                .stream()
+                .map(BasicRegion::getAbRegion)
+                .collect(Collectors.toList());
+
+        curves = new LinkedHashMap<>(creator.getCurveToContour());
+        zonesToSplit = rSteps.get(rSteps.size() - 1).getAddedCurveData().getSplitZones();
+
+        med = createMED();
+    }
+
+    /**
+     * Basic regions cache their geometry, so each MED gets fresh ones as in the pipeline.
+     */
+    private MED createMED() {
+        List<BasicRegion> basicRegions = regions.stream()
+                .map(r -> new BasicRegion(r, curves, settings))
+                .collect(Collectors.toList());
+
+        return new MED(basicRegions, new BasicRegion(AbstractBasicRegion.OUTSIDE, curves, settings), curves, settings, null);
+    }
+
+    @Benchmark
+    public List<DecompositionStep> decompose() {
+        return DecomposerFactory.newDecomposer(settings.getDecompType()).decompose(description);
+    }
+
+    @Benchmark
+    public List<RecompositionStep> recompose() {
+        return RecomposerFactory.newRecomposer().recompose(dSteps);
+    }
+
+    @Benchmark
+    public DiagramCreator createDiagram() {
+        DiagramCreator creator = new DiagramCreator(settings);
+        creator.createDiagram(description);
+        return creator;
+    }
+
+    @Benchmark
+    public MED constructMED() {
+        return createMED();
+    }
+
+    @Benchmark
+    public GraphCycle<EulerDualNode, EulerDualEdge> computeCycle() {
+        return med.computeCycle(zonesToSplit);
+    }
+}
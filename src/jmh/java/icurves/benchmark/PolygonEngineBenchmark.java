@@ -0,0 +1,119 @@
+package icurves.benchmark;
+
+import icurves.description.Description;
+import icurves.diagram.BasicRegion;
+import icurves.diagram.DiagramCreator;
+import icurves.geometry.PolygonClipper;
+import icurves.geometry.PolygonEngineType;
+import icurves.layout.LayoutSettings;
+import icurves.util.Examples;
+import icurves.util.Profiler;
+import math.geom2d.polygon.Polygon2D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the polygon engines on the basic region polygons of an example,
+ * i.e. the bounding box intersected with containing curves minus excluding curves,
+ * and on the whole pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PolygonEngineBenchmark {
+
+    @Param({ "JAVAGEOM", "MARTINEZ" })
+    public PolygonEngineType engine;
+
+    @Param({
+            "Venn-4", "Venn-5",
+            "Nested Piercing 1",
+            "Single Piercing 2",
+            "Double Piercing 3",
+            "Combined Piercing 1",
+            "Combined All 4",
+            "Edge Route 2"
+    })
+    public String example;
+
+    private LayoutSettings settings;
+    private Description description;
+
+    private Polygon2D bbox;
+    private List<List<Polygon2D>> containing = new ArrayList<>();
+    private List<List<Polygon2D>> excluding = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Profiler.setEnabled(false);
+
+        LayoutSettings defaults = LayoutSettings.DEFAULT;
+
+        settings = new LayoutSettings(defaults.isParallel(), defaults.getUseSmooth(), defaults.getSmoothFactor(),
+                defaults.getMedSize(), defaults.getShowMED(), defaults.getDecompType(), defaults.getBboxSize(), engine);
+
+        description = Examples.INSTANCE.getList()
+                .stream()
+                .filter(pair -> pair.getFirst().equals(example))
+                .map(pair -> pair.getSecond())
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown example: " + example));
+
+        // same input polygons for both engines
+        DiagramCreator creator = new DiagramCreator(defaults);
+        creator.createDiagram(description);
+
+        bbox = defaults.getGeomBBox();
+
+        for (BasicRegion region : creator.getBasicRegions()) {
+            List<Polygon2D> in = new ArrayList<>();
+            List<Polygon2D> out = new ArrayList<>();
+
+            creator.getCurveToContour().forEach((abstractCurve, curve) -> {
+                Polygon2D polygon = curve.getPolygon();
+
+                if (region.getAbRegion().contains(abstractCurve)) {
+                    in.add(polygon);
+                } else {
+                    out.add(polygon);
+                }
+            });
+
+            containing.add(in);
+            excluding.add(out);
+        }
+    }
+
+    @Benchmark
+    public int regionPolygons() {
+        PolygonClipper clipper = engine.getClipper();
+        int vertices = 0;
+
+        for (int i = 0; i < containing.size(); i++) {
+            Polygon2D polygon = bbox;
+
+            for (Polygon2D p : containing.get(i))
+                polygon = clipper.intersection(polygon, p);
+
+            for (Polygon2D p : excluding.get(i))
+                polygon = clipper.difference(polygon, p);
+
+            vertices += polygon.vertexNumber();
+        }
+
+        return vertices;
+    }
+
+    @Benchmark
+    public DiagramCreator createDiagram() {
+        DiagramCreator creator = new DiagramCreator(settings);
+        creator.createDiagram(description);
+        return creator;
+    }
+}
@@ -0,0 +1,380 @@
+package icurves;
+
+import icurves.description.AbstractCurve;
+import icurves.description.Description;
+import icurves.diagram.BasicRegion;
+import icurves.diagram.Curve;
+import icurves.diagram.curve.CircleCurve;
+import icurves.geometry.PolygonEngineType;
+import icurves.layout.Layout;
+import icurves.layout.LayoutEngine;
+import icurves.layout.LayoutSettings;
+import icurves.util.MultiToSimple;
+import icurves.util.Profiler;
+import math.geom2d.Point2D;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Lays out a file of informal descriptions (one per line) without the GUI.
+ * Reading, layout and writing run concurrently: the main thread reads and submits lines,
+ * a pool of workers parses and lays them out, and a single writer thread outputs
+ * results in input order as JSON lines.
+ *
+ * Usage: BatchLayout input output [--threads N] [--parallel] [--no-smooth] [--med-size D] [--polygon-engine JAVAGEOM|MARTINEZ] [--fixed-point-grid G] [--flattening-tolerance T]
+ * Exits with status 2 if any description failed to lay out; failures are recorded in the output.
+ * The MARTINEZ polygon engine is experimental.
+ */
+public final class BatchLayout {
+
+    private static final Logger log = LogManager.getLogger(BatchLayout.class);
+
+    /**
+     * Max number of submitted but not yet written descriptions per worker.
+     * Keeps memory bounded when the input is much larger than the pool.
+     */
+    private static final int QUEUE_SIZE_PER_WORKER = 4;
+
+    private final LayoutEngine engine;
+    private final int numThreads;
+
+    public BatchLayout(LayoutSettings settings, int numThreads) {
+        this.engine = new LayoutEngine(settings);
+        this.numThreads = numThreads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            exitWithUsage();
+        }
+
+        Configurator.initialize("default", BatchLayout.class.getResource("/icurves/log4j2.xml").toExternalForm());
+
+        // stages are timed per diagram, so no need for console profiling
+        Profiler.setEnabled(false);
+
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        boolean parallel = false;
+        boolean smooth = true;
+        double medSize = LayoutSettings.DEFAULT.getMedSize();
+        PolygonEngineType polygonEngine = LayoutSettings.DEFAULT.getPolygonEngine();
+        double fixedPointGrid = LayoutSettings.DEFAULT.getFixedPointGrid();
+        double flatteningTolerance = LayoutSettings.DEFAULT.getFlatteningTolerance();
+
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    numThreads = Integer.parseInt(optionValue(args, ++i));
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--no-smooth":
+                    smooth = false;
+                    break;
+                case "--med-size":
+                    medSize = Double.parseDouble(optionValue(args, ++i));
+                    break;
+                case "--polygon-engine":
+                    polygonEngine = PolygonEngineType.valueOf(optionValue(args, ++i));
+                    break;
+                case "--fixed-point-grid":
+                    fixedPointGrid = Double.parseDouble(optionValue(args, ++i));
+                    break;
+                case "--flattening-tolerance":
+                    flatteningTolerance = Double.parseDouble(optionValue(args, ++i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        LayoutSettings defaults = LayoutSettings.DEFAULT;
+        LayoutSettings settings = new LayoutSettings(parallel, smooth, defaults.getSmoothFactor(), medSize,
+                defaults.getShowMED(), defaults.getDecompType(), defaults.getBboxSize(), polygonEngine, fixedPointGrid, flatteningTolerance);
+
+        int failed = new BatchLayout(settings, numThreads).run(args[0], args[1]);
+
+        // FX toolkit threads, if started by shape operations, would keep the JVM alive
+        System.exit(failed == 0 ? 0 : 2);
+    }
+
+    private static void exitWithUsage() {
+        System.out.println("Usage: BatchLayout input output [--threads N] [--parallel] [--no-smooth] [--med-size D] [--polygon-engine JAVAGEOM|MARTINEZ] [--fixed-point-grid G] [--flattening-tolerance T]");
+        System.out.println("The MARTINEZ polygon engine is experimental, some layouts fail with it.");
+        System.exit(1);
+    }
+
+    /**
+     * @return value of an option at index, exits with usage if it is missing
+     */
+    private static String optionValue(String[] args, int index) {
+        if (index >= args.length) {
+            exitWithUsage();
+        }
+
+        return args[index];
+    }
+
+    /**
+     * @param inputFile file with one informal description per line
+     * @param outputFile file to write JSON lines to
+     * @return number of descriptions that failed to lay out
+     */
+    public int run(String inputFile, String outputFile) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "Batch Writer"));
+        BlockingQueue<Future<Result>> pending = new ArrayBlockingQueue<>(numThreads * QUEUE_SIZE_PER_WORKER);
+
+        long startTime = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)) {
+
+            Future<int[]> writerTask = writerThread.submit(() -> writeResults(pending, writer));
+
+            int id = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                final int index = id++;
+                final String informal = line;
+
+                enqueue(pending, workers.submit(() -> process(index, informal)), writerTask);
+            }
+
+            // end of input marker
+            enqueue(pending, CompletableFuture.completedFuture(null), writerTask);
+
+            int[] counts = writerTask.get();
+
+            log.info(String.format("Laid out %d descriptions (%d failed) in %.3f sec",
+                    counts[0], counts[1], (System.nanoTime() - startTime) / 1000000000.0));
+
+            return counts[1];
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to write results", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            writerThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Blocks while the writer falls behind, unless the writer has failed.
+     */
+    private static void enqueue(BlockingQueue<Future<Result>> pending, Future<Result> result, Future<int[]> writerTask)
+            throws InterruptedException, ExecutionException {
+
+        while (!pending.offer(result, 100, TimeUnit.MILLISECONDS)) {
+            if (writerTask.isDone()) {
+                // rethrows the writer error
+                writerTask.get();
+            }
+        }
+    }
+
+    private Result process(int id, String informal) {
+        Result result = new Result(id, informal);
+
+        try {
+            long start = System.nanoTime();
+
+            // each connected part is laid out as a separate diagram, as in the GUI
+            List<Description> descriptions = new ArrayList<>();
+            for (String part : MultiToSimple.decompose(informal)) {
+                descriptions.add(Description.from(part));
+            }
+
+            result.parseTime = System.nanoTime() - start;
+
+            for (Description description : descriptions) {
+                result.layouts.add(engine.layout(description));
+            }
+        } catch (Throwable e) {
+            // any error, including OutOfMemoryError, only fails this description, not the whole batch
+            log.warn("Failed to lay out " + informal + ": " + e);
+            result.error = e.toString();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return number of written results, number of failed results
+     */
+    private int[] writeResults(BlockingQueue<Future<Result>> pending, Writer writer) throws Exception {
+        int written = 0;
+        int failed = 0;
+
+        while (true) {
+            Result result = pending.take().get();
+
+            if (result == null)
+                break;
+
+            writer.write(toJSON(result));
+            writer.write('\n');
+
+            written++;
+            if (result.error != null)
+                failed++;
+        }
+
+        writer.flush();
+
+        return new int[] { written, failed };
+    }
+
+    private static String toJSON(Result result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":").append(result.id)
+                .append(",\"description\":").append(quote(result.informal));
+
+        if (result.error != null) {
+            sb.append(",\"error\":").append(quote(result.error)).append('}');
+            return sb.toString();
+        }
+
+        // sum stage timings over all parts
+        Map<String, Long> timings = new LinkedHashMap<>();
+        timings.put("parse", result.parseTime);
+        for (Layout layout : result.layouts) {
+            layout.getTimings().forEach((stage, time) -> timings.merge(stage, time, Long::sum));
+        }
+
+        sb.append(",\"timings\":{");
+        timings.forEach((stage, time) -> sb.append(quote(stage)).append(':').append(time / 1000000.0).append(','));
+        sb.setCharAt(sb.length() - 1, '}');
+
+        sb.append(",\"diagrams\":[");
+        for (Layout layout : result.layouts) {
+            sb.append("{\"curves\":[");
+            for (Map.Entry<AbstractCurve, Curve> entry : layout.getCurves().entrySet()) {
+                appendCurve(sb, entry.getKey(), entry.getValue());
+                sb.append(',');
+            }
+            closeArray(sb);
+
+            sb.append(",\"shaded\":[");
+            for (BasicRegion region : layout.getShadedRegions()) {
+                sb.append(quote(region.getAbRegion().toString())).append(',');
+            }
+            closeArray(sb);
+
+            sb.append("},");
+        }
+        closeArray(sb);
+
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static void appendCurve(StringBuilder sb, AbstractCurve label, Curve curve) {
+        sb.append("{\"label\":").append(quote(label.getLabel()));
+
+        if (curve instanceof CircleCurve) {
+            CircleCurve circle = (CircleCurve) curve;
+
+            sb.append(",\"type\":\"circle\"");
+            sb.append(",\"x\":");
+            appendNumber(sb, circle.getCenterX());
+            sb.append(",\"y\":");
+            appendNumber(sb, circle.getCenterY());
+            sb.append(",\"r\":");
+            appendNumber(sb, circle.getRadius());
+        } else {
+            sb.append(",\"type\":\"polygon\",\"points\":[");
+            for (Point2D p : curve.getPolygon().vertices()) {
+                sb.append('[');
+                appendNumber(sb, p.x());
+                sb.append(',');
+                appendNumber(sb, p.y());
+                sb.append("],");
+            }
+            closeArray(sb);
+        }
+
+        sb.append('}');
+    }
+
+    /**
+     * JSON has no NaN or infinity, so those are written as null.
+     */
+    private static void appendNumber(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sb.append("null");
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /**
+     * Replaces trailing comma (if any) with array end.
+     */
+    private static void closeArray(StringBuilder sb) {
+        if (sb.charAt(sb.length() - 1) == ',') {
+            sb.setCharAt(sb.length() - 1, ']');
+        } else {
+            sb.append(']');
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Outcome of laying out a single line of input.
+     */
+    private static class Result {
+        private final int id;
+        private final String informal;
+        private final List<Layout> layouts = new ArrayList<>();
+        private long parseTime;
+        private String error;
+
+        Result(int id, String informal) {
+            this.id = id;
+            this.informal = informal;
+        }
+    }
+}
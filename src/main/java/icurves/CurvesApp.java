@@ -1,7 +1,6 @@
 package icurves;
 
 import icurves.gn.GNDescription;
-import icurves.guifx.SettingsController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -17,17 +16,6 @@ public class CurvesApp extends Application {
         return instance;
     }
 
-    private SettingsController settings;
-
-    public SettingsController getSettings() {
-        return settings;
-    }
-
-    // we'll settle for this hack for now
-    public void setSettings(SettingsController settings) {
-        this.settings = settings;
-    }
-
     @Override
     public void start(Stage stage) throws Exception {
         instance = this;
@@ -3,6 +3,7 @@ package icurves.decomposition;
 import icurves.description.AbstractBasicRegion;
 import icurves.description.AbstractCurve;
 import icurves.description.Description;
+import icurves.util.PersistentSortedSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -51,21 +52,20 @@ public class BasicDecomposer implements Decomposer {
     }
 
     private DecompositionStep takeStep(Description ad, AbstractCurve curve) {
-        Set<AbstractCurve> contours = new TreeSet<>(ad.getCurves());
-        contours.remove(curve);
+        PersistentSortedSet<AbstractCurve> contours = ad.getCurves().minus(curve);
 
-        Set<AbstractBasicRegion> zones = new TreeSet<>();
         Map<AbstractBasicRegion, AbstractBasicRegion> zonesMoved = new TreeMap<>();
 
-        for (AbstractBasicRegion zone : ad.getZones()) {
-            AbstractBasicRegion newZone = zone.moveOutside(curve);
-            zones.add(newZone);
-
-            if (!zone.equals(newZone)) {
-                zonesMoved.put(zone, newZone);
-            }
+        // only zones inside the curve change
+        for (AbstractBasicRegion zone : ad.getZonesIn(curve)) {
+            zonesMoved.put(zone, zone.moveOutside(curve));
         }
 
+        // the rest is shared with ad
+        PersistentSortedSet<AbstractBasicRegion> zones = ad.getZones()
+                .minusAll(zonesMoved.keySet())
+                .plusAll(zonesMoved.values());
+
         Description targetAD = new Description(contours, zones);
         return new DecompositionStep(ad, targetAD, zonesMoved, curve);
     }
@@ -105,20 +105,10 @@ public final class DecomposerFactory {
     private static boolean isPiercingCurve(AbstractCurve ac, Description ad) {
         // every abstract basic region in ad which is in ac
         // must have a corresponding abr which is not in ac
-        ArrayList<AbstractBasicRegion> zonesInContour = new ArrayList<>();
-
-        abrLoop:
-        for (AbstractBasicRegion zone : ad.getZones()) {
-            if (zone.contains(ac)) {
-                zonesInContour.add(zone);
-
-                // look for a partner zone
-                for (AbstractBasicRegion zone2 : ad.getZones()) {
-                    if (zone.getStraddledContour(zone2).orElse(null) == ac) {
-                        continue abrLoop;
-                    }
-                }
+        List<AbstractBasicRegion> zonesInContour = ad.getZonesIn(ac);
 
+        for (AbstractBasicRegion zone : zonesInContour) {
+            if (ad.getNeighbourAcross(zone, ac) == null) {
                 // never found a partner zone
                 return false;
             }
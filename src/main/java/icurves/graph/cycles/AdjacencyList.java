@@ -1,8 +1,5 @@
 package icurves.graph.cycles;
 
-import java.util.Vector;
-
-
 /**
  * Calculates the adjacency-list for a given adjacency-matrix.
  * 
@@ -26,17 +23,19 @@ public class AdjacencyList {
 		int[][] list = new int[adjacencyMatrix.length][];
 
 		for (int i = 0; i < adjacencyMatrix.length; i++) {
-			Vector v = new Vector();
+			int count = 0;
 			for (int j = 0; j < adjacencyMatrix[i].length; j++) {
 				if (adjacencyMatrix[i][j]) {
-					v.add(new Integer(j));
+					count++;
 				}
 			}
 
-			list[i] = new int[v.size()];
-			for (int j = 0; j < v.size(); j++) {
-				Integer in = (Integer) v.get(j);
-				list[i][j] = in.intValue();
+			list[i] = new int[count];
+			int k = 0;
+			for (int j = 0; j < adjacencyMatrix[i].length; j++) {
+				if (adjacencyMatrix[i][j]) {
+					list[i][k++] = j;
+				}
 			}
 		}
 		
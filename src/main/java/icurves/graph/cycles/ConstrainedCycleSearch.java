@@ -0,0 +1,375 @@
+package icurves.graph.cycles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Finds a shortest simple cycle (at least 3 vertices) of an undirected graph that
+ * passes through every required zone and is accepted by a validity check.
+ * Each vertex belongs to a zone. A cycle may visit a zone at most once,
+ * unless the zone is marked as repeatable.
+ *
+ * The search is branch-and-bound by iterative deepening on cycle length.
+ * For each length bound, paths start from vertices of the required zone that has
+ * the fewest vertices (anchors), and a branch is abandoned as soon as it can no longer
+ * come back to the anchor through all zones still required within the bound.
+ * So only the neighbourhood of the required zones is explored,
+ * and the first cycle accepted is a shortest one.
+ *
+ * Cycles are given as vertex indices, starting with the lowest one
+ * and in the direction with the smaller second vertex, as produced by {@link ElementaryCyclesSearch}.
+ */
+public class ConstrainedCycleSearch {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    /** Adjacency-list of graph, successors in ascending order */
+    private final int[][] adjList;
+
+    private final int numVertices;
+
+    /** Zone of each vertex */
+    private final int[] zoneOf;
+
+    private final boolean[] repeatable;
+
+    /** Index into required zones of each zone, -1 if zone is not required */
+    private final int[] requiredIndex;
+
+    private final int numRequired;
+
+    /** Distance from each vertex to closest vertex of each required zone */
+    private final int[][] distToRequired;
+
+    /** Vertices the cycle is anchored at, in ascending order */
+    private final int[] anchors;
+
+    /** Distance from each vertex to each anchor */
+    private final int[][] anchorDistances;
+
+    // search state
+
+    private final int[] path;
+    private final int[] nextSuccessor;
+    private final boolean[] onPath;
+
+    /** Number of path vertices in each zone */
+    private final int[] zoneCount;
+
+    /** Number of required zones not yet on path */
+    private int uncovered;
+
+    /**
+     * @param adjList adjacency-list of an undirected graph (both directions present),
+     *                successors of each vertex in ascending order
+     * @param zoneOf zone of each vertex, in [0..numZones)
+     * @param repeatable for each zone, whether a cycle may pass through it more than once
+     * @param requiredZones zones the cycle must pass through
+     */
+    public ConstrainedCycleSearch(int[][] adjList, int[] zoneOf, boolean[] repeatable, int[] requiredZones) {
+        this.adjList = adjList;
+        this.numVertices = adjList.length;
+        this.zoneOf = zoneOf;
+        this.repeatable = repeatable;
+
+        int numZones = repeatable.length;
+
+        requiredIndex = new int[numZones];
+        Arrays.fill(requiredIndex, -1);
+
+        int count = 0;
+        for (int zone : requiredZones) {
+            if (requiredIndex[zone] == -1)
+                requiredIndex[zone] = count++;
+        }
+
+        numRequired = count;
+
+        distToRequired = new int[numRequired][];
+        for (int zone = 0; zone < numZones; zone++) {
+            if (requiredIndex[zone] != -1)
+                distToRequired[requiredIndex[zone]] = distancesToZone(zone);
+        }
+
+        anchors = findAnchors();
+
+        anchorDistances = new int[anchors.length][];
+        for (int i = 0; i < anchors.length; i++)
+            anchorDistances[i] = distancesTo(anchors[i]);
+
+        path = new int[numVertices];
+        nextSuccessor = new int[numVertices];
+        onPath = new boolean[numVertices];
+        zoneCount = new int[numZones];
+    }
+
+    /**
+     * @param isValid validity check, called for candidate cycles in order of non-decreasing length
+     * @return the first valid cycle or null if there is none
+     */
+    public int[] findShortest(Predicate<int[]> isValid) {
+        // a required zone without vertices cannot be visited
+        for (int[] dist : distToRequired) {
+            if (!hasReachable(dist))
+                return null;
+        }
+
+        // each required zone needs its own vertex
+        for (int length = Math.max(3, numRequired); length <= numVertices; length++) {
+            for (int i = 0; i < anchors.length; i++) {
+                int[] cycle = searchFromAnchor(i, length, isValid);
+                if (cycle != null)
+                    return cycle;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return vertices of the required zone with fewest vertices, or all vertices if nothing is required
+     */
+    private int[] findAnchors() {
+        if (numRequired == 0) {
+            int[] all = new int[numVertices];
+            for (int v = 0; v < numVertices; v++)
+                all[v] = v;
+
+            return all;
+        }
+
+        int[] zoneSize = new int[repeatable.length];
+        for (int v = 0; v < numVertices; v++)
+            zoneSize[zoneOf[v]]++;
+
+        int anchorZone = -1;
+        for (int zone = 0; zone < zoneSize.length; zone++) {
+            if (requiredIndex[zone] != -1 && (anchorZone == -1 || zoneSize[zone] < zoneSize[anchorZone]))
+                anchorZone = zone;
+        }
+
+        List<Integer> result = new ArrayList<>();
+        for (int v = 0; v < numVertices; v++) {
+            if (zoneOf[v] == anchorZone)
+                result.add(v);
+        }
+
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Depth-bounded DFS for cycles of given length through anchors[anchorIndex].
+     * Anchors before anchorIndex are excluded, since cycles through them were already searched.
+     */
+    private int[] searchFromAnchor(int anchorIndex, int length, Predicate<int[]> isValid) {
+        int anchor = anchors[anchorIndex];
+        int[] distToAnchor = anchorDistances[anchorIndex];
+        int[] minDistFromRequired = minDistancesFromRequired(distToAnchor);
+
+        boolean[] excluded = new boolean[numVertices];
+        for (int i = 0; i < anchorIndex; i++)
+            excluded[anchors[i]] = true;
+
+        uncovered = numRequired;
+
+        int depth = 0;
+        push(0, anchor);
+
+        if (!canClose(anchor, 0, length, distToAnchor, minDistFromRequired)) {
+            pop(0);
+            return null;
+        }
+
+        int[] result = null;
+
+        while (depth >= 0) {
+            int v = path[depth];
+
+            if (nextSuccessor[depth] == adjList[v].length) {
+                pop(depth--);
+                continue;
+            }
+
+            int w = adjList[v][nextSuccessor[depth]++];
+
+            if (w == anchor) {
+                // keep only one of the two directions
+                if (depth + 1 == length && uncovered == 0 && path[1] < path[depth]) {
+                    int[] cycle = normalize(Arrays.copyOf(path, length));
+
+                    if (isValid.test(cycle)) {
+                        result = cycle;
+                        break;
+                    }
+                }
+
+                continue;
+            }
+
+            if (onPath[w] || excluded[w] || depth + 2 > length)
+                continue;
+
+            if (!repeatable[zoneOf[w]] && zoneCount[zoneOf[w]] > 0)
+                continue;
+
+            push(depth + 1, w);
+
+            if (canClose(w, depth + 1, length, distToAnchor, minDistFromRequired)) {
+                depth++;
+            } else {
+                pop(depth + 1);
+            }
+        }
+
+        // clear state for next search
+        while (depth >= 0) {
+            pop(depth--);
+        }
+
+        return result;
+    }
+
+    /**
+     * Bound: with v at given depth, the cycle must be closed in (length - depth) edges,
+     * visiting every zone still required on the way.
+     */
+    private boolean canClose(int v, int depth, int length, int[] distToAnchor, int[] minDistFromRequired) {
+        int remaining = length - depth;
+
+        if (distToAnchor[v] > remaining)
+            return false;
+
+        // each uncovered zone needs a distinct vertex strictly between v and anchor
+        if (uncovered > remaining - 1)
+            return false;
+
+        for (int zone = 0; zone < zoneCount.length; zone++) {
+            int index = requiredIndex[zone];
+
+            if (index != -1 && zoneCount[zone] == 0) {
+                if (distToRequired[index][v] + minDistFromRequired[index] > remaining)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void push(int depth, int v) {
+        path[depth] = v;
+        nextSuccessor[depth] = 0;
+        onPath[v] = true;
+
+        int zone = zoneOf[v];
+        if (zoneCount[zone]++ == 0 && requiredIndex[zone] != -1)
+            uncovered--;
+    }
+
+    private void pop(int depth) {
+        int v = path[depth];
+        onPath[v] = false;
+
+        int zone = zoneOf[v];
+        if (--zoneCount[zone] == 0 && requiredIndex[zone] != -1)
+            uncovered++;
+    }
+
+    /**
+     * Rotates cycle to start with its lowest vertex and orients it so that
+     * the second vertex is lower than the last one.
+     */
+    private static int[] normalize(int[] cycle) {
+        int n = cycle.length;
+
+        int min = 0;
+        for (int i = 1; i < n; i++) {
+            if (cycle[i] < cycle[min])
+                min = i;
+        }
+
+        int next = cycle[(min + 1) % n];
+        int prev = cycle[(min - 1 + n) % n];
+        int step = next < prev ? 1 : n - 1;
+
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = cycle[(min + i * step) % n];
+        }
+
+        return result;
+    }
+
+    /**
+     * @return for each required zone, the distance from its closest vertex to anchor
+     */
+    private int[] minDistancesFromRequired(int[] distToAnchor) {
+        int[] result = new int[numRequired];
+        Arrays.fill(result, UNREACHABLE);
+
+        for (int v = 0; v < numVertices; v++) {
+            int index = requiredIndex[zoneOf[v]];
+
+            if (index != -1)
+                result[index] = Math.min(result[index], distToAnchor[v]);
+        }
+
+        return result;
+    }
+
+    private int[] distancesTo(int vertex) {
+        boolean[] sources = new boolean[numVertices];
+        sources[vertex] = true;
+        return bfs(sources);
+    }
+
+    private int[] distancesToZone(int zone) {
+        boolean[] sources = new boolean[numVertices];
+        for (int v = 0; v < numVertices; v++)
+            sources[v] = zoneOf[v] == zone;
+
+        return bfs(sources);
+    }
+
+    /**
+     * Multi-source BFS.
+     */
+    private int[] bfs(boolean[] sources) {
+        int[] dist = new int[numVertices];
+        Arrays.fill(dist, UNREACHABLE);
+
+        int[] queue = new int[numVertices];
+        int head = 0;
+        int tail = 0;
+
+        for (int v = 0; v < numVertices; v++) {
+            if (sources[v]) {
+                dist[v] = 0;
+                queue[tail++] = v;
+            }
+        }
+
+        while (head < tail) {
+            int v = queue[head++];
+
+            for (int w : adjList[v]) {
+                if (dist[w] == UNREACHABLE) {
+                    dist[w] = dist[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    private static boolean hasReachable(int[] dist) {
+        for (int d : dist) {
+            if (d != UNREACHABLE)
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -7,7 +7,8 @@ import org.jgrapht.UndirectedGraph;
 import org.jgrapht.graph.SimpleGraph;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * This is an adapted version from the following stackoverflow answer:
@@ -46,51 +47,116 @@ public class CycleFinder<V, E> {
         List<List<V> > cycles = getAllCycles();
 
         for (List<V> cycle : cycles) {
-            List<E> edges = new ArrayList<>();
+            graphCycles.add(toGraphCycle(cycle));
+        }
+
+        Collections.sort(graphCycles, (c1, c2) -> c1.length() - c2.length());
 
-            for (int i = 0; i < cycle.size(); i++) {
-                int j = i + 1 < cycle.size() ? i + 1 : 0;
+        return graphCycles;
+    }
+
+    /**
+     * Finds a shortest valid cycle that passes through all required zones,
+     * without enumerating all cycles.
+     *
+     * @param zoneOf maps vertex to its zone
+     * @param requiredZones zones the cycle must pass through
+     * @param isRepeatable whether a cycle may pass through a zone more than once
+     * @param isValid additional validity check for candidate cycles
+     * @return the cycle or null if there is no such cycle
+     */
+    public <Z> GraphCycle<V, E> findShortestCycle(Function<V, Z> zoneOf, Collection<Z> requiredZones,
+                                                   Predicate<Z> isRepeatable, Predicate<GraphCycle<V, E>> isValid) {
+        this.buildAdjancyMatrix();
+
+        Map<Z, Integer> zoneIds = new HashMap<>();
+        List<Z> zones = new ArrayList<>();
+
+        int[] zoneIndices = new int[vertexList.size()];
+        for (int i = 0; i < vertexList.size(); i++) {
+            Z zone = zoneOf.apply(vertexList.get(i));
+
+            zoneIndices[i] = zoneIds.computeIfAbsent(zone, z -> {
+                zones.add(z);
+                return zones.size() - 1;
+            });
+        }
+
+        boolean[] repeatable = new boolean[zones.size()];
+        for (int i = 0; i < zones.size(); i++) {
+            repeatable[i] = isRepeatable.test(zones.get(i));
+        }
 
-                V v1 = cycle.get(i);
-                V v2 = cycle.get(j);
+        int[] required = new int[requiredZones.size()];
+        int i = 0;
+        for (Z zone : requiredZones) {
+            Integer id = zoneIds.get(zone);
 
-                edges.add(graph.getEdge(v1, v2));
+            // no vertex is in that zone
+            if (id == null)
+                return null;
+
+            required[i++] = id;
+        }
+
+        ConstrainedCycleSearch search = new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(this.adjMatrix),
+                zoneIndices, repeatable, required);
+
+        // validity check may store data in the cycle, so keep the accepted instance
+        List<GraphCycle<V, E>> result = new ArrayList<>(1);
+
+        search.findShortest(indices -> {
+            GraphCycle<V, E> cycle = toGraphCycle(indices);
+
+            if (isValid.test(cycle)) {
+                result.add(cycle);
+                return true;
             }
 
-            graphCycles.add(new GraphCycle<V, E>(cycle, edges));
+            return false;
+        });
+
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private GraphCycle<V, E> toGraphCycle(int[] indices) {
+        List<V> cycle = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            cycle.add(vertexList.get(index));
         }
 
-        Collections.sort(graphCycles, (c1, c2) -> c1.length() - c2.length());
+        return toGraphCycle(cycle);
+    }
 
-        return graphCycles;
+    private GraphCycle<V, E> toGraphCycle(List<V> cycle) {
+        List<E> edges = new ArrayList<>();
+
+        for (int i = 0; i < cycle.size(); i++) {
+            int j = i + 1 < cycle.size() ? i + 1 : 0;
+
+            V v1 = cycle.get(i);
+            V v2 = cycle.get(j);
+
+            edges.add(graph.getEdge(v1, v2));
+        }
+
+        return new GraphCycle<V, E>(cycle, edges);
     }
 
+    /**
+     * @return each simple cycle (at least 3 vertices) once, in the order Johnson's algorithm finds them
+     */
     public List<List<V>> getAllCycles() {
         this.buildAdjancyMatrix();
 
         @SuppressWarnings("unchecked")
         V[] vertexArray = (V[]) this.vertexList.toArray();
-        ElementaryCyclesSearch ecs = new ElementaryCyclesSearch(this.adjMatrix, vertexArray);
+        ElementaryCyclesSearch ecs = new ElementaryCyclesSearch(this.adjMatrix, vertexArray, false, true);
 
         @SuppressWarnings("unchecked")
-        List<List<V>> cycles0 = ecs.getElementaryCycles();
-
-        // remove cycles of size 2
-        Iterator<List<V>> listIt = cycles0.iterator();
-        while (listIt.hasNext()) {
-            List<V> cycle = listIt.next();
+        List<List<V>> cycles = (List<List<V>>) (List<?>) ecs.getElementaryCycles();
 
-            if (cycle.size() == 2) {
-                listIt.remove();
-            }
-        }
-
-        log.trace("Cleaned cycles of size 2");
-
-        // remove repeated cycles (two cycles are repeated if they have the same vertex (no matter the order)
-        List<List<V>> cycles1 = removeRepeatedLists(cycles0);
-
-        return cycles1;
+        return cycles;
     }
 
     private void buildAdjancyMatrix() {
@@ -109,70 +175,4 @@ public class CycleFinder<V, E> {
             this.adjMatrix[j][i] = true;
         }
     }
-
-    /* Here repeated lists are those with the same elements, no matter the order,
-     * and it is assumed that there are no repeated elements on any of the lists*/
-    private List<List<V>> removeRepeatedLists(List<List<V>> listOfLists) {
-        log.trace("Removing repeated cycles");
-
-        return listOfLists.stream()
-                .map(Cycle::new)
-                .distinct()
-                .map(c -> c.vertices)
-                .collect(Collectors.toList());
-
-//        List<List<V>> inputListOfLists = new ArrayList<>(listOfLists);
-//        List<List<V>> outputListOfLists = new ArrayList<>();
-
-//        while (!inputListOfLists.isEmpty()) {
-//            // get the first element
-//            List<V> thisList = inputListOfLists.get(0);
-//            // remove it
-//            inputListOfLists.remove(0);
-//            outputListOfLists.add(thisList);
-//            // look for duplicates
-//            Integer nEl = thisList.size();
-//            Iterator<List<V>> listIt = inputListOfLists.iterator();
-//            while (listIt.hasNext()) {
-//                List<V> remainingList = listIt.next();
-//
-//                if (remainingList.size() == nEl) {
-//                    if (remainingList.containsAll(thisList)) {
-//                        listIt.remove();
-//                    }
-//                }
-//            }
-//
-//        }
-//
-//        log.trace("Finished removing repeated cycles");
-//
-//        return outputListOfLists;
-
-        //return listOfLists;
-    }
-
-    private static class Cycle<V> {
-        private List<V> vertices;
-
-        public Cycle(List<V> vertices) {
-            this.vertices = vertices;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            Cycle<V> other = (Cycle<V>) obj;
-
-            if (vertices.size() != other.vertices.size())
-                return false;
-
-            List<V> copyVertices = new ArrayList<V>(vertices);
-
-            for (V vertex : other.vertices) {
-                copyVertices.removeIf(v -> v == vertex);
-            }
-
-            return copyVertices.isEmpty();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,7 +1,14 @@
 package icurves.graph.cycles;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 
 
@@ -23,30 +30,39 @@ import java.util.Vector;
  * The algorithm of Johnson is based on the search for strong connected
  * components in a graph. For a description of this part see:<br>
  * Robert Tarjan: Depth-first search and linear graph algorithms. In: SIAM
- * Journal on Computing. Volume 1, Nr. 2 (1972), pp. 146-160.<br>
- * 
+ * Journal on Computing. Volume 1, Nr. 2 (1972), pp. 146-160.<br><br>
+ *
+ * The search uses explicit stacks instead of recursion and primitive arrays
+ * instead of boxed collections, so it does not overflow the call stack on large graphs.<br><br>
+ *
+ * Cycles through different start vertices are searched independently, so in parallel
+ * mode start vertices are spread across the common fork-join pool. The result is
+ * the same list, in the same order, as in sequential mode. In both modes, the component
+ * of each start vertex is only computed when a search is about to start.<br><br>
+ *
+ * For undirected graphs (symmetric adjacency-matrix), undirected mode reports each
+ * cycle of at least 3 nodes once, starting with its lowest node and in the direction
+ * whose second node is lower, instead of once per direction plus all 2-cycles.
+ * The other direction is not searched at all: for each second node, only edges back
+ * to the start node from higher nodes close a cycle, and blocking starts afresh,
+ * so paths that could only return in the other direction stay blocked.<br>
+ *
  * @author Frank Meyer, web_at_normalisiert_dot_de
  * @version 1.2, 22.03.2009
  *
  */
 public class ElementaryCyclesSearch {
-	/** List of cycles */
-	private List cycles = null;
-
 	/** Adjacency-list of graph */
 	private int[][] adjList = null;
 
 	/** Graphnodes */
 	private Object[] graphNodes = null;
 
-	/** Blocked nodes, used by the algorithm of Johnson */
-	private boolean[] blocked = null;
+	/** Search start vertices in parallel */
+	private boolean parallel = false;
 
-	/** B-Lists, used by the algorithm of Johnson */
-	private Vector[] B = null;
-
-	/** Stack for nodes, used by the algorithm of Johnson */
-	private Vector stack = null;
+	/** Report each undirected cycle once */
+	private boolean undirected = false;
 
 	/**
 	 * Constructor.
@@ -57,8 +73,33 @@ public class ElementaryCyclesSearch {
 	 * graph-representation
 	 */
 	public ElementaryCyclesSearch(boolean[][] matrix, Object[] graphNodes) {
+		this(matrix, graphNodes, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param matrix adjacency-matrix of the graph
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @param parallel whether to search start vertices in parallel
+	 */
+	public ElementaryCyclesSearch(boolean[][] matrix, Object[] graphNodes, boolean parallel) {
+		this(matrix, graphNodes, parallel, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param matrix adjacency-matrix of the graph, must be symmetric in undirected mode
+	 * @param graphNodes array of the graphnodes of the graph
+	 * @param parallel whether to search start vertices in parallel
+	 * @param undirected whether to report each undirected cycle once
+	 */
+	public ElementaryCyclesSearch(boolean[][] matrix, Object[] graphNodes, boolean parallel, boolean undirected) {
 		this.graphNodes = graphNodes;
 		this.adjList = AdjacencyList.getAdjacencyList(matrix);
+		this.parallel = parallel;
+		this.undirected = undirected;
 	}
 
 	/**
@@ -67,99 +108,237 @@ public class ElementaryCyclesSearch {
 	 *
 	 * @return List::List::Object with the Lists of the elementary cycles.
 	 */
-	public List getElementaryCycles() {
-		this.cycles = new Vector();
-		this.blocked = new boolean[this.adjList.length];
-		this.B = new Vector[this.adjList.length];
-		this.stack = new Vector();
-		StrongConnectedComponents sccs = new StrongConnectedComponents(this.adjList);
-		int s = 0;
-
-		while (true) {
-			SCCResult sccResult = sccs.getAdjacencyList(s);
-			if (sccResult != null && sccResult.getAdjList() != null) {
-				Vector[] scc = sccResult.getAdjList();
-				s = sccResult.getLowestNodeId();
-				for (int j = 0; j < scc.length; j++) {
-					if ((scc[j] != null) && (scc[j].size() > 0)) {
-						this.blocked[j] = false;
-						this.B[j] = new Vector();
+	public List<List<Object>> getElementaryCycles() {
+		Iterator<SCCResult> components = new StartComponents();
+
+		List<List<Object>> cycles = new ArrayList<>();
+
+		if (this.parallel) {
+			// workers take one component at a time, so only those being searched are in memory,
+			// and results are merged by component index, so they do not depend on scheduling
+			Map<Integer, List<List<Object>>> results = new TreeMap<>();
+			int[] numTaken = new int[1];
+
+			IntStream.range(0, ForkJoinPool.getCommonPoolParallelism() + 1).parallel().forEach(worker -> {
+				Search search = new Search();
+
+				while (true) {
+					SCCResult scc;
+					int index;
+
+					synchronized (components) {
+						if (!components.hasNext())
+							return;
+
+						scc = components.next();
+						index = numTaken[0]++;
+					}
+
+					List<List<Object>> result = search.findCycles(scc);
+
+					synchronized (results) {
+						results.put(index, result);
 					}
 				}
+			});
 
-				this.findCycles(s, s, scc);
-				s++;
-			} else {
-				break;
+			for (List<List<Object>> result : results.values()) {
+				cycles.addAll(result);
+			}
+		} else {
+			Search search = new Search();
+			while (components.hasNext()) {
+				cycles.addAll(search.findCycles(components.next()));
 			}
 		}
 
-		return this.cycles;
+		return cycles;
 	}
 
 	/**
-	 * Calculates the cycles containing a given node in a strongly connected
-	 * component. The method calls itself recursivly.
-	 *
-	 * @param v
-	 * @param s
-	 * @param adjList adjacency-list with the subgraph of the strongly
-	 * connected component s is part of.
-	 * @return true, if cycle found; false otherwise
+	 * Strong connected components, each with its start vertex as the lowest node,
+	 * in the order Johnson's algorithm visits them. Each component is only computed
+	 * when requested, since its adjacency-structure has a row for every node of the graph.
 	 */
-	private boolean findCycles(int v, int s, Vector[] adjList) {
-		boolean f = false;
-		this.stack.add(new Integer(v));
-		this.blocked[v] = true;
-
-		for (int i = 0; i < adjList[v].size(); i++) {
-			int w = ((Integer) adjList[v].get(i)).intValue();
-			// found cycle
-			if (w == s) {
-				Vector cycle = new Vector();
-				for (int j = 0; j < this.stack.size(); j++) {
-					int index = ((Integer) this.stack.get(j)).intValue();
-					cycle.add(this.graphNodes[index]);
+	private class StartComponents implements Iterator<SCCResult> {
+		private final StrongConnectedComponents sccs = new StrongConnectedComponents(adjList);
+
+		/** Start vertex of the next search */
+		private int s = 0;
+
+		private SCCResult next = null;
+
+		private boolean done = false;
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null && !this.done) {
+				SCCResult sccResult = this.sccs.getAdjacencyList(this.s);
+				if (sccResult != null && sccResult.getAdjList() != null) {
+					this.next = sccResult;
+					this.s = sccResult.getLowestNodeId() + 1;
+				} else {
+					this.done = true;
 				}
-				this.cycles.add(cycle);
-				f = true;
-			} else if (!this.blocked[w]) {
-				if (this.findCycles(w, s, adjList)) {
-					f = true;
+			}
+
+			return this.next != null;
+		}
+
+		@Override
+		public SCCResult next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+
+			SCCResult sccResult = this.next;
+			this.next = null;
+			return sccResult;
+		}
+	}
+
+	/**
+	 * State of the algorithm of Johnson for one start vertex at a time.
+	 */
+	private class Search {
+		/** Blocked nodes, used by the algorithm of Johnson */
+		private boolean[] blocked = new boolean[adjList.length];
+
+		/** B-Lists, used by the algorithm of Johnson */
+		private BitSet[] B = new BitSet[adjList.length];
+
+		/** Stack for nodes, used by the algorithm of Johnson */
+		private int[] stack = new int[adjList.length];
+
+		/** Index of next successor to visit, for each node on the stack */
+		private int[] nextSuccessor = new int[adjList.length];
+
+		/** Whether a cycle was found from each node on the stack */
+		private boolean[] found = new boolean[adjList.length];
+
+		/** Nodes still to unblock, used by {@link #unblock(int)} */
+		private int[] unblockStack = new int[adjList.length];
+
+		/**
+		 * Calculates the cycles containing the lowest node in a strongly connected
+		 * component, using depth-first search with an explicit stack.
+		 *
+		 * @param sccResult the strongly connected component
+		 * @return List::List::Object with the Lists of the elementary cycles
+		 */
+		private List<List<Object>> findCycles(SCCResult sccResult) {
+			int[][] scc = sccResult.getAdjList();
+			int s = sccResult.getLowestNodeId();
+
+			this.resetBlocking(scc, s);
+
+			List<List<Object>> cycles = new ArrayList<>();
+
+			int depth = 0;
+			this.push(0, s);
+
+			while (depth >= 0) {
+				int v = this.stack[depth];
+
+				if (this.nextSuccessor[depth] < scc[v].length) {
+					int w = scc[v][this.nextSuccessor[depth]++];
+					// found cycle, in undirected mode only if the last node is above the second,
+					// so the edges back to s from other nodes are as if absent
+					if (w == s) {
+						if (!undirected || (depth >= 2 && this.stack[1] < this.stack[depth])) {
+							List<Object> cycle = new ArrayList<>(depth + 1);
+							for (int j = 0; j <= depth; j++) {
+								cycle.add(graphNodes[this.stack[j]]);
+							}
+							cycles.add(cycle);
+
+							this.found[depth] = true;
+						}
+					} else {
+						// which edges close a cycle depends on the second node,
+						// so blocking from the previous second node does not apply
+						if (undirected && depth == 0) {
+							this.resetBlocking(scc, s);
+						}
+
+						if (!this.blocked[w]) {
+							depth++;
+							this.push(depth, w);
+						}
+					}
+				} else {
+					boolean f = this.found[depth];
+
+					if (f) {
+						this.unblock(v);
+					} else {
+						for (int w : scc[v]) {
+							this.B[w].set(v);
+						}
+					}
+
+					depth--;
+
+					// return to caller
+					if (depth >= 0 && f) {
+						this.found[depth] = true;
+					}
 				}
 			}
+
+			return cycles;
 		}
 
-		if (f) {
-			this.unblock(v);
-		} else {
-			for (int i = 0; i < adjList[v].size(); i++) {
-				int w = ((Integer) adjList[v].get(i)).intValue();
-				if (!this.B[w].contains(new Integer(v))) {
-					this.B[w].add(new Integer(v));
+		/**
+		 * Unblocks all nodes of the strongly connected component and clears their B-lists.
+		 *
+		 * @param scc adjacency-list of the strongly connected component
+		 * @param s start node, stays blocked since it is on the stack
+		 */
+		private void resetBlocking(int[][] scc, int s) {
+			for (int j = 0; j < scc.length; j++) {
+				if ((scc[j] != null) && (scc[j].length > 0)) {
+					this.blocked[j] = false;
+
+					if (this.B[j] == null) {
+						this.B[j] = new BitSet(scc.length);
+					} else {
+						this.B[j].clear();
+					}
 				}
 			}
+
+			this.blocked[s] = true;
 		}
 
-		this.stack.remove(new Integer(v));
-		return f;
-	}
+		private void push(int depth, int v) {
+			this.stack[depth] = v;
+			this.nextSuccessor[depth] = 0;
+			this.found[depth] = false;
+			this.blocked[v] = true;
+		}
 
-	/**
-	 * Unblocks recursivly all blocked nodes, starting with a given node.
-	 *
-	 * @param node node to unblock
-	 */
-	private void unblock(int node) {
-		this.blocked[node] = false;
-		Vector Bnode = this.B[node];
-		while (Bnode.size() > 0) {
-			Integer w = (Integer) Bnode.get(0);
-			Bnode.remove(0);
-			if (this.blocked[w.intValue()]) {
-				this.unblock(w.intValue());
+		/**
+		 * Unblocks all blocked nodes reachable through B-lists, starting with a given node.
+		 *
+		 * @param node node to unblock
+		 */
+		private void unblock(int node) {
+			int size = 0;
+			this.blocked[node] = false;
+			this.unblockStack[size++] = node;
+
+			while (size > 0) {
+				BitSet Bnode = this.B[this.unblockStack[--size]];
+
+				for (int w = Bnode.nextSetBit(0); w >= 0; w = Bnode.nextSetBit(w + 1)) {
+					if (this.blocked[w]) {
+						this.blocked[w] = false;
+						this.unblockStack[size++] = w;
+					}
+				}
+
+				Bnode.clear();
 			}
 		}
 	}
 }
-
@@ -1,28 +1,19 @@
 package icurves.graph.cycles;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Vector;
-
 public class SCCResult {
-	private Set nodeIDsOfSCC = null;
-	private Vector[] adjList = null;
+	private int[][] adjList = null;
 	private int lowestNodeId = -1;
-	
-	public SCCResult(Vector[] adjList, int lowestNodeId) {
+
+	/**
+	 * @param adjList adjacency-list of the component, empty for nodes outside of it
+	 * @param lowestNodeId lowest node of the component
+	 */
+	public SCCResult(int[][] adjList, int lowestNodeId) {
 		this.adjList = adjList;
 		this.lowestNodeId = lowestNodeId;
-		this.nodeIDsOfSCC = new HashSet();
-		if (this.adjList != null) {
-			for (int i = this.lowestNodeId; i < this.adjList.length; i++) {
-				if (this.adjList[i].size() > 0) {
-					this.nodeIDsOfSCC.add(new Integer(i));
-				}
-			}
-		}
 	}
 
-	public Vector[] getAdjList() {
+	public int[][] getAdjList() {
 		return adjList;
 	}
 
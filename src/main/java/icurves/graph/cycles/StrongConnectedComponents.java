@@ -1,7 +1,7 @@
 package icurves.graph.cycles;
 
-
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is a helpclass for the search of all elementary cycles in a graph 
@@ -24,6 +24,9 @@ import java.util.Vector;
  * Donald B. Johnson: Finding All the Elementary Circuits of a Directed Graph.
  * SIAM Journal on Computing. Volumne 4, Nr. 1 (1975), pp. 77-84.<br><br>
  *
+ * Components are searched iteratively with primitive arrays, so large graphs
+ * do not overflow the call stack.<br><br>
+ *
  * @author Frank Meyer, web_at_normalisiert_dot_de
  * @version 1.1, 22.03.2009
  *
@@ -34,12 +37,18 @@ public class StrongConnectedComponents {
 
 	/** Adjacency-list of currently viewed subgraph */
 	private int[][] adjList = null;
-	
+
 	/** Helpattribute for finding scc's */
 	private boolean[] visited = null;
 
-	/** Helpattribute for finding scc's */
-	private Vector stack = null;
+	/** Helpattribute for finding scc's, nodes of the Tarjan stack */
+	private int[] stack = null;
+
+	/** Helpattribute for finding scc's, number of nodes on the Tarjan stack */
+	private int stackSize = 0;
+
+	/** Helpattribute for finding scc's, whether node is on the Tarjan stack */
+	private boolean[] onStack = null;
 
 	/** Helpattribute for finding scc's */
 	private int[] lowlink = null;
@@ -51,7 +60,13 @@ public class StrongConnectedComponents {
 	private int sccCounter = 0;
 
 	/** Helpattribute for finding scc's */
-	private Vector currentSCCs = null;
+	private List<int[]> currentSCCs = null;
+
+	/** Helpattribute for finding scc's, DFS path replacing recursion */
+	private int[] callStack = null;
+
+	/** Helpattribute for finding scc's, index of next successor for each node on DFS path */
+	private int[] nextSuccessor = null;
 
 	/**
 	 * Constructor.
@@ -74,35 +89,49 @@ public class StrongConnectedComponents {
 	 * connected component; null, if no such component exists
 	 */
 	public SCCResult getAdjacencyList(int node) {
-		this.visited = new boolean[this.adjListOriginal.length];
-		this.lowlink = new int[this.adjListOriginal.length];
-		this.number = new int[this.adjListOriginal.length];
-		this.visited = new boolean[this.adjListOriginal.length];
-		this.stack = new Vector();
-		this.currentSCCs = new Vector();
-
-		this.makeAdjListSubgraph(node);
-
-		for (int i = node; i < this.adjListOriginal.length; i++) {
-			if (!this.visited[i]) {
-				this.getStrongConnectedComponents(i);
-				Vector nodes = this.getLowestIdComponent();
-				if (nodes != null && !nodes.contains(new Integer(node)) && !nodes.contains(new Integer(node + 1))) {
-					return this.getAdjacencyList(node + 1);
-				} else {
-					Vector[] adjacencyList = this.getAdjList(nodes);
-					if (adjacencyList != null) {
-						for (int j = 0; j < this.adjListOriginal.length; j++) {
-							if (adjacencyList[j].size() > 0) {
-								return new SCCResult(adjacencyList, j);
+		int n = this.adjListOriginal.length;
+
+		// each iteration views the subgraph {node, node + 1, ..., n}
+		while (true) {
+			this.visited = new boolean[n];
+			this.lowlink = new int[n];
+			this.number = new int[n];
+			this.stack = new int[n];
+			this.stackSize = 0;
+			this.onStack = new boolean[n];
+			this.callStack = new int[n];
+			this.nextSuccessor = new int[n];
+			this.currentSCCs = new ArrayList<>();
+
+			this.makeAdjListSubgraph(node);
+
+			boolean nextSubgraph = false;
+
+			for (int i = node; i < n; i++) {
+				if (!this.visited[i]) {
+					this.getStrongConnectedComponents(i);
+					int[] nodes = this.getLowestIdComponent();
+					if (nodes != null && !contains(nodes, node) && !contains(nodes, node + 1)) {
+						nextSubgraph = true;
+						break;
+					} else {
+						int[][] adjacencyList = this.getAdjList(nodes);
+						if (adjacencyList != null) {
+							for (int j = 0; j < n; j++) {
+								if (adjacencyList[j].length > 0) {
+									return new SCCResult(adjacencyList, j);
+								}
 							}
 						}
 					}
 				}
 			}
-		}
 
-		return null;
+			if (!nextSubgraph)
+				return null;
+
+			node++;
+		}
 	}
 
 	/**
@@ -115,17 +144,22 @@ public class StrongConnectedComponents {
 		this.adjList = new int[this.adjListOriginal.length][0];
 
 		for (int i = node; i < this.adjList.length; i++) {
-			Vector successors = new Vector();
-			for (int j = 0; j < this.adjListOriginal[i].length; j++) {
-				if (this.adjListOriginal[i][j] >= node) {
-					successors.add(new Integer(this.adjListOriginal[i][j]));
+			int[] successors = this.adjListOriginal[i];
+
+			int count = 0;
+			for (int succ : successors) {
+				if (succ >= node) {
+					count++;
 				}
 			}
-			if (successors.size() > 0) {
-				this.adjList[i] = new int[successors.size()];
-				for (int j = 0; j < successors.size(); j++) {
-					Integer succ = (Integer) successors.get(j);
-					this.adjList[i][j] = succ.intValue();
+
+			if (count > 0) {
+				this.adjList[i] = new int[count];
+				int j = 0;
+				for (int succ : successors) {
+					if (succ >= node) {
+						this.adjList[i][j++] = succ;
+					}
 				}
 			}
 		}
@@ -135,19 +169,17 @@ public class StrongConnectedComponents {
 	 * Calculates the strong connected component out of a set of scc's, that
 	 * contains the node with the lowest index.
 	 *
-	 * @return Vector::Integer of the scc containing the lowest nodenumber
+	 * @return nodes of the scc containing the lowest nodenumber
 	 */
-	private Vector getLowestIdComponent() {
+	private int[] getLowestIdComponent() {
 		int min = this.adjList.length;
-		Vector currScc = null;
+		int[] currScc = null;
 
-		for (int i = 0; i < this.currentSCCs.size(); i++) {
-			Vector scc = (Vector) this.currentSCCs.get(i);
-			for (int j = 0; j < scc.size(); j++) {
-				Integer node = (Integer) scc.get(j);
-				if (node.intValue() < min) {
+		for (int[] scc : this.currentSCCs) {
+			for (int node : scc) {
+				if (node < min) {
 					currScc = scc;
-					min = node.intValue();
+					min = node;
 				}
 			}
 		}
@@ -156,26 +188,36 @@ public class StrongConnectedComponents {
 	}
 
 	/**
-	 * @return Vector[]::Integer representing the adjacency-structure of the
-	 * strong connected component with least vertex in the currently viewed
-	 * subgraph
+	 * @return adjacency-structure of the strong connected component with
+	 * least vertex in the currently viewed subgraph
 	 */
-	private Vector[] getAdjList(Vector nodes) {
-		Vector[] lowestIdAdjacencyList = null;
+	private int[][] getAdjList(int[] nodes) {
+		int[][] lowestIdAdjacencyList = null;
 
 		if (nodes != null) {
-			lowestIdAdjacencyList = new Vector[this.adjList.length];
-			for (int i = 0; i < lowestIdAdjacencyList.length; i++) {
-				lowestIdAdjacencyList[i] = new Vector();
+			boolean[] inComponent = new boolean[this.adjList.length];
+			for (int node : nodes) {
+				inComponent[node] = true;
 			}
-			for (int i = 0; i < nodes.size(); i++) {
-				int node = ((Integer) nodes.get(i)).intValue();
-				for (int j = 0; j < this.adjList[node].length; j++) {
-					int succ = this.adjList[node][j];
-					if (nodes.contains(new Integer(succ))) {
-						lowestIdAdjacencyList[node].add(new Integer(succ));
+
+			lowestIdAdjacencyList = new int[this.adjList.length][0];
+			for (int node : nodes) {
+				int count = 0;
+				for (int succ : this.adjList[node]) {
+					if (inComponent[succ]) {
+						count++;
 					}
 				}
+
+				int[] successors = new int[count];
+				int j = 0;
+				for (int succ : this.adjList[node]) {
+					if (inComponent[succ]) {
+						successors[j++] = succ;
+					}
+				}
+
+				lowestIdAdjacencyList[node] = successors;
 			}
 		}
 
@@ -188,42 +230,79 @@ public class StrongConnectedComponents {
 	 * @param root node to start from.
 	 */
 	private void getStrongConnectedComponents(int root) {
-		this.sccCounter++;
-		this.lowlink[root] = this.sccCounter;
-		this.number[root] = this.sccCounter;
-		this.visited[root] = true;
-		this.stack.add(new Integer(root));
-
-		for (int i = 0; i < this.adjList[root].length; i++) {
-			int w = this.adjList[root][i];
-			if (!this.visited[w]) {
-				this.getStrongConnectedComponents(w);
-				this.lowlink[root] = Math.min(lowlink[root], lowlink[w]);
-			} else if (this.number[w] < this.number[root]) {
-				if (this.stack.contains(new Integer(w))) {
-					lowlink[root] = Math.min(this.lowlink[root], this.number[w]);
+		int depth = 0;
+		this.visit(root);
+		this.callStack[0] = root;
+		this.nextSuccessor[0] = 0;
+
+		while (depth >= 0) {
+			int v = this.callStack[depth];
+
+			if (this.nextSuccessor[depth] < this.adjList[v].length) {
+				int w = this.adjList[v][this.nextSuccessor[depth]++];
+				if (!this.visited[w]) {
+					this.visit(w);
+					depth++;
+					this.callStack[depth] = w;
+					this.nextSuccessor[depth] = 0;
+				} else if (this.number[w] < this.number[v] && this.onStack[w]) {
+					this.lowlink[v] = Math.min(this.lowlink[v], this.number[w]);
+				}
+			} else {
+				this.collectComponent(v);
+				depth--;
+
+				// return to caller
+				if (depth >= 0) {
+					int parent = this.callStack[depth];
+					this.lowlink[parent] = Math.min(this.lowlink[parent], this.lowlink[v]);
 				}
 			}
 		}
+	}
 
-		// found scc
-		if ((lowlink[root] == number[root]) && (stack.size() > 0)) {
-			int next = -1;
-			Vector scc = new Vector();
+	private void visit(int node) {
+		this.sccCounter++;
+		this.lowlink[node] = this.sccCounter;
+		this.number[node] = this.sccCounter;
+		this.visited[node] = true;
+		this.stack[this.stackSize++] = node;
+		this.onStack[node] = true;
+	}
+
+	/**
+	 * Pops the scc rooted at given node, if all its successors are done.
+	 */
+	private void collectComponent(int root) {
+		if ((this.lowlink[root] == this.number[root]) && (this.stackSize > 0)) {
+			int end = this.stackSize;
+			int next;
 
 			do {
-				next = ((Integer) this.stack.get(stack.size() - 1)).intValue();
-				this.stack.remove(stack.size() - 1);
-				scc.add(new Integer(next));
+				next = this.stack[--this.stackSize];
+				this.onStack[next] = false;
 			} while (this.number[next] > this.number[root]);
 
 			// simple scc's with just one node will not be added
-			if (scc.size() > 1) {
+			if (end - this.stackSize > 1) {
+				int[] scc = new int[end - this.stackSize];
+				for (int i = 0; i < scc.length; i++) {
+					scc[i] = this.stack[end - 1 - i];
+				}
 				this.currentSCCs.add(scc);
 			}
 		}
 	}
 
+	private static boolean contains(int[] nodes, int node) {
+		for (int n : nodes) {
+			if (n == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public static void main(String[] args) {
 		boolean[][] adjMatrix = new boolean[10][];
 
@@ -262,12 +341,12 @@ public class StrongConnectedComponents {
 			System.out.print("i: " + i + "\n");
 			SCCResult r = scc.getAdjacencyList(i);
 			if (r != null) {
-				Vector[] al = scc.getAdjacencyList(i).getAdjList();
+				int[][] al = r.getAdjList();
 				for (int j = i; j < al.length; j++) {
-					if (al[j].size() > 0) {
+					if (al[j].length > 0) {
 						System.out.print("j: " + j);
-						for (int k = 0; k < al[j].size(); k++) {
-							System.out.print(" _" + al[j].get(k).toString());
+						for (int k = 0; k < al[j].length; k++) {
+							System.out.print(" _" + al[j][k]);
 						}
 						System.out.print("\n");
 					}
@@ -1,12 +1,12 @@
 package icurves.guifx;
 
-import icurves.CurvesApp;
 import icurves.description.AbstractCurve;
 import icurves.description.Description;
 import icurves.diagram.Curve;
 import icurves.diagram.DiagramCreator;
 import icurves.graph.EulerDualNode;
 import icurves.graph.MED;
+import icurves.layout.LayoutSettings;
 import icurves.util.Examples;
 import icurves.util.MultiToSimple;
 import javafx.application.Platform;
@@ -84,9 +84,6 @@ public class Controller {
             Parent root = fxmlLoader.load();
             settings = fxmlLoader.getController();
 
-            // set global settings hack
-            CurvesApp.getInstance().setSettings(settings);
-
             dialogSettings.getDialogPane().setContent(root);
         } catch (Exception e) {
             showError(e);
@@ -301,9 +298,11 @@ public class Controller {
 
             Platform.runLater(renderer::clearRenderer);
 
+            LayoutSettings layoutSettings = settings.toLayoutSettings();
+
             MultiToSimple.decompose(description.getInformalDescription()).forEach(desc -> {
 
-                DiagramCreator newCreator = new DiagramCreator(settings);
+                DiagramCreator newCreator = new DiagramCreator(layoutSettings);
 
                 offsets.put(newCreator, new Point2D(offsets.size() * 6000, 0));
 
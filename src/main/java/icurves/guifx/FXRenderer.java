@@ -3,6 +3,7 @@ package icurves.guifx;
 import icurves.diagram.BasicRegion;
 import icurves.diagram.curve.PathCurve;
 import icurves.description.AbstractCurve;
+import icurves.description.CurveLabels;
 import icurves.diagram.Curve;
 import icurves.diagram.curve.CircleCurve;
 import javafx.application.Platform;
@@ -89,9 +90,11 @@ public class FXRenderer extends Pane {
     }
 
     private Set<AbstractCurve> makeCurves(String... curveLabels) {
+        CurveLabels labels = new CurveLabels();
+
         return Arrays.asList(curveLabels)
                 .stream()
-                .map(AbstractCurve::new)
+                .map(labels::curve)
                 .collect(Collectors.toSet());
     }
 
@@ -1,42 +1,22 @@
 package icurves.guifx;
 
 import icurves.decomposition.DecompositionStrategyType;
+import icurves.layout.LayoutSettings;
 import javafx.fxml.FXML;
 import javafx.geometry.Point2D;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.TextField;
-import javafx.scene.shape.Rectangle;
-import math.geom2d.polygon.Polygon2D;
-import math.geom2d.polygon.SimplePolygon2D;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
 public class SettingsController {
 
-    public Map<Object, Object> globalMap = new HashMap<>();
-
     public static List<Point2D> debugPoints = new ArrayList<>();
 
-    public Polygon2D geomBBox = new SimplePolygon2D(new math.geom2d.Point2D(-10000.0, -10000.0),
-            new math.geom2d.Point2D(10000.0, -10000.0),
-            new math.geom2d.Point2D(10000.0, 10000.0),
-            new math.geom2d.Point2D(-10000.0, 10000.0));
-
-    public Rectangle fxBBox = createBBox();
-
-    private Rectangle createBBox() {
-        Rectangle r = new Rectangle(20000, 20000);
-        r.setTranslateX(-10000);
-        r.setTranslateY(-10000);
-        return r;
-    }
-
     @FXML
     private CheckBox cbParallel;
 
@@ -83,4 +63,14 @@ public class SettingsController {
     public DecompositionStrategyType getDecompType() {
         return DecompositionStrategyType.INNERMOST;
     }
+
+    /**
+     * Takes a snapshot of current UI values, so that layout does not
+     * need to access UI controls.
+     *
+     * @return immutable layout settings
+     */
+    public LayoutSettings toLayoutSettings() {
+        return new LayoutSettings(isParallel(), useSmooth(), getSmoothFactor(), getMEDSize(), showMED(), getDecompType());
+    }
 }
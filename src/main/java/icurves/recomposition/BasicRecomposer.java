@@ -4,6 +4,7 @@ import icurves.decomposition.DecompositionStep;
 import icurves.description.AbstractBasicRegion;
 import icurves.description.AbstractCurve;
 import icurves.description.Description;
+import icurves.util.PersistentSortedSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -35,7 +36,7 @@ public class BasicRecomposer implements Recomposer {
 
         log.info("Recomposition begin");
         result.forEach(log::info);
-        log.trace("Matched zones: " + matchedZones);
+        log.trace("Matched zones: {}", matchedZones);
         log.info("Recomposition end");
 
         return result;
@@ -88,7 +89,7 @@ public class BasicRecomposer implements Recomposer {
     protected RecompositionStep recomposeStep(DecompositionStep decompStep, RecompositionStep previous,
                                               Map<AbstractBasicRegion, AbstractBasicRegion> matchedZones) {
 
-        log.trace("Matched Zones: " + matchedZones);
+        log.trace("Matched Zones: {}", matchedZones);
 
         // find the resulting zones in the previous step got to
         List<AbstractBasicRegion> zonesToSplit = new ArrayList<>();
@@ -114,35 +115,35 @@ public class BasicRecomposer implements Recomposer {
             }
         }
 
-        log.trace("Matched Inverse: " + matched_inverse);
+        log.trace("Matched Inverse: {}", matched_inverse);
 
         Description from = previous.getTo();
 
         // zonesToSplit, from == in(k,D), D
 
-        log.debug("Recomposing curve: " + decompStep.removed());
-        log.debug("Zones to split (ORIGINAL): " + zonesToSplit);
+        log.debug("Recomposing curve: {}", decompStep.removed());
+        log.debug("Zones to split (ORIGINAL): {}", zonesToSplit);
 
-        log.debug("Zones to split (FIXED): " + zonesToSplit);
+        log.debug("Zones to split (FIXED): {}", zonesToSplit);
 
         // MAKE STEP
 
-        Set<AbstractBasicRegion> newZoneSet = new TreeSet<>(from.getZones());
-        Set<AbstractCurve> newCurveSet = new TreeSet<>(from.getCurves());
+        // new sets share everything but the added zones with from
+        PersistentSortedSet<AbstractBasicRegion> newZoneSet = from.getZones();
 
         AbstractCurve removedCurve = decompStep.removed();
 
         List<AbstractBasicRegion> splitZones = new ArrayList<>();
         List<AbstractBasicRegion> addedZones = new ArrayList<>();
 
-        AbstractCurve newCurve = new AbstractCurve(removedCurve.getLabel());
-        newCurveSet.add(newCurve);
+        AbstractCurve newCurve = removedCurve.getLabels().curve(removedCurve.getLabel());
+        PersistentSortedSet<AbstractCurve> newCurveSet = from.getCurves().plus(newCurve);
 
         for (AbstractBasicRegion z : zonesToSplit) {
             splitZones.add(z);
             AbstractBasicRegion new_zone = z.moveInside(newCurve);
 
-            newZoneSet.add(new_zone);
+            newZoneSet = newZoneSet.plus(new_zone);
             addedZones.add(new_zone);
 
             AbstractBasicRegion decomp_z = matched_inverse.get(z);
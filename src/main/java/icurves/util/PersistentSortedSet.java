@@ -0,0 +1,387 @@
+package icurves.util;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set, in natural order, stored as a weight-balanced binary tree.
+ * {@link #plus(Comparable)} and {@link #minus(Comparable)} return new sets that copy
+ * only the path to the changed element and share all other nodes with this set,
+ * so a chain of sets that differ by a few elements costs O(k log n) time and space per link.
+ *
+ * Balancing follows Adams' trees (as in Haskell's Data.Set) with parameters (3, 2).
+ */
+public final class PersistentSortedSet<E extends Comparable<? super E>> extends AbstractSet<E> implements SortedSet<E> {
+
+    private static final int DELTA = 3;
+    private static final int RATIO = 2;
+
+    private static final PersistentSortedSet<?> EMPTY = new PersistentSortedSet<>(null);
+
+    private static final class Node<E> {
+        final E key;
+        final Node<E> left;
+        final Node<E> right;
+        final int size;
+
+        Node(E key, Node<E> left, Node<E> right) {
+            this.key = key;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E extends Comparable<? super E>> PersistentSortedSet<E> empty() {
+        return (PersistentSortedSet<E>) EMPTY;
+    }
+
+    /**
+     * @return persistent set with given elements, the same instance if it already is one
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Comparable<? super E>> PersistentSortedSet<E> of(Collection<? extends E> elements) {
+        if (elements instanceof PersistentSortedSet)
+            return (PersistentSortedSet<E>) elements;
+
+        List<E> sorted;
+
+        // already sorted and distinct in natural order, so just build
+        if (elements instanceof SortedSet && ((SortedSet<?>) elements).comparator() == null) {
+            sorted = new ArrayList<>(elements);
+        } else {
+            sorted = new ArrayList<>(new TreeSet<>(elements));
+        }
+
+        return new PersistentSortedSet<>(build(sorted, 0, sorted.size()));
+    }
+
+    private final Node<E> root;
+
+    private PersistentSortedSet(Node<E> root) {
+        this.root = root;
+    }
+
+    /**
+     * @return set with given element, this set if it is already in it
+     */
+    public PersistentSortedSet<E> plus(E element) {
+        Objects.requireNonNull(element);
+
+        Node<E> newRoot = insert(root, element);
+        return newRoot == root ? this : new PersistentSortedSet<>(newRoot);
+    }
+
+    /**
+     * @return set without given element, this set if it is not in it
+     */
+    public PersistentSortedSet<E> minus(E element) {
+        Node<E> newRoot = delete(root, element);
+        return newRoot == root ? this : new PersistentSortedSet<>(newRoot);
+    }
+
+    public PersistentSortedSet<E> plusAll(Iterable<? extends E> elements) {
+        PersistentSortedSet<E> result = this;
+        for (E e : elements) {
+            result = result.plus(e);
+        }
+
+        return result;
+    }
+
+    public PersistentSortedSet<E> minusAll(Collection<? extends E> elements) {
+        // removing a large share is cheaper as one linear rebuild than as many path copies
+        if (elements.size() * 4 > size()) {
+            Set<?> removed = elements instanceof Set ? (Set<?>) elements : new HashSet<>(elements);
+
+            List<E> kept = new ArrayList<>();
+            for (E e : this) {
+                if (!removed.contains(e))
+                    kept.add(e);
+            }
+
+            return kept.size() == size() ? this : new PersistentSortedSet<>(build(kept, 0, kept.size()));
+        }
+
+        PersistentSortedSet<E> result = this;
+        for (E e : elements) {
+            result = result.minus(e);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+
+        E element = (E) o;
+        Node<E> node = root;
+
+        while (node != null) {
+            int c = element.compareTo(node.key);
+            if (c == 0)
+                return true;
+
+            node = c < 0 ? node.left : node.right;
+        }
+
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty())
+                    throw new NoSuchElementException();
+
+                Node<E> node = stack.pop();
+                pushLeft(node.right);
+                return node.key;
+            }
+        };
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return null;
+    }
+
+    @Override
+    public E first() {
+        if (root == null)
+            throw new NoSuchElementException();
+
+        Node<E> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+
+        return node.key;
+    }
+
+    @Override
+    public E last() {
+        if (root == null)
+            throw new NoSuchElementException();
+
+        Node<E> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+
+        return node.key;
+    }
+
+    // the set never changes, so a copy of the range behaves like a view
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        if (fromElement.compareTo(toElement) > 0)
+            throw new IllegalArgumentException("fromElement > toElement");
+
+        return range(fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return range(null, Objects.requireNonNull(toElement));
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return range(Objects.requireNonNull(fromElement), null);
+    }
+
+    /**
+     * @return elements in [from, to), null meaning unbounded
+     */
+    private PersistentSortedSet<E> range(E from, E to) {
+        List<E> elements = new ArrayList<>();
+        collect(root, from, to, elements);
+        return new PersistentSortedSet<>(build(elements, 0, elements.size()));
+    }
+
+    private static <E extends Comparable<? super E>> void collect(Node<E> node, E from, E to, List<E> result) {
+        if (node == null)
+            return;
+
+        boolean aboveFrom = from == null || node.key.compareTo(from) >= 0;
+        boolean belowTo = to == null || node.key.compareTo(to) < 0;
+
+        if (aboveFrom)
+            collect(node.left, from, to, result);
+
+        if (aboveFrom && belowTo)
+            result.add(node.key);
+
+        if (belowTo)
+            collect(node.right, from, to, result);
+    }
+
+    /**
+     * @return true if every node is within balance and has the right size, for tests
+     */
+    boolean isBalanced() {
+        return isBalanced(root);
+    }
+
+    private static boolean isBalanced(Node<?> node) {
+        if (node == null)
+            return true;
+
+        int sizeL = size(node.left);
+        int sizeR = size(node.right);
+
+        return node.size == 1 + sizeL + sizeR
+                && (sizeL + sizeR <= 1 || (sizeL <= DELTA * sizeR && sizeR <= DELTA * sizeL))
+                && isBalanced(node.left) && isBalanced(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <E> Node<E> build(List<E> sorted, int from, int to) {
+        if (from >= to)
+            return null;
+
+        int mid = (from + to) >>> 1;
+        return new Node<>(sorted.get(mid), build(sorted, from, mid), build(sorted, mid + 1, to));
+    }
+
+    private static <E extends Comparable<? super E>> Node<E> insert(Node<E> node, E element) {
+        if (node == null)
+            return new Node<>(element, null, null);
+
+        int c = element.compareTo(node.key);
+        if (c == 0)
+            return node;
+
+        if (c < 0) {
+            Node<E> left = insert(node.left, element);
+            return left == node.left ? node : balance(node.key, left, node.right);
+        } else {
+            Node<E> right = insert(node.right, element);
+            return right == node.right ? node : balance(node.key, node.left, right);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> Node<E> delete(Node<E> node, Object o) {
+        if (node == null || o == null)
+            return node;
+
+        int c = ((E) o).compareTo(node.key);
+        if (c == 0)
+            return glue(node.left, node.right);
+
+        if (c < 0) {
+            Node<E> left = delete(node.left, o);
+            return left == node.left ? node : balance(node.key, left, node.right);
+        } else {
+            Node<E> right = delete(node.right, o);
+            return right == node.right ? node : balance(node.key, node.left, right);
+        }
+    }
+
+    /**
+     * Joins two balanced trees whose sizes are within balance, all keys of left below all keys of right.
+     */
+    private static <E> Node<E> glue(Node<E> left, Node<E> right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left.size > right.size) {
+            Node<E> max = left;
+            while (max.right != null) {
+                max = max.right;
+            }
+
+            return balance(max.key, deleteMax(left), right);
+        } else {
+            Node<E> min = right;
+            while (min.left != null) {
+                min = min.left;
+            }
+
+            return balance(min.key, left, deleteMin(right));
+        }
+    }
+
+    private static <E> Node<E> deleteMin(Node<E> node) {
+        if (node.left == null)
+            return node.right;
+
+        return balance(node.key, deleteMin(node.left), node.right);
+    }
+
+    private static <E> Node<E> deleteMax(Node<E> node) {
+        if (node.right == null)
+            return node.left;
+
+        return balance(node.key, node.left, deleteMax(node.right));
+    }
+
+    private static <E> Node<E> balance(E key, Node<E> left, Node<E> right) {
+        int sizeL = size(left);
+        int sizeR = size(right);
+
+        if (sizeL + sizeR <= 1)
+            return new Node<>(key, left, right);
+
+        if (sizeR > DELTA * sizeL) {
+            if (size(right.left) < RATIO * size(right.right)) {
+                // single left rotation
+                return new Node<>(right.key, new Node<>(key, left, right.left), right.right);
+            }
+
+            // double left rotation
+            Node<E> rl = right.left;
+            return new Node<>(rl.key, new Node<>(key, left, rl.left), new Node<>(right.key, rl.right, right.right));
+        }
+
+        if (sizeL > DELTA * sizeR) {
+            if (size(left.right) < RATIO * size(left.left)) {
+                // single right rotation
+                return new Node<>(left.key, left.left, new Node<>(key, left.right, right));
+            }
+
+            // double right rotation
+            Node<E> lr = left.right;
+            return new Node<>(lr.key, new Node<>(left.key, left.left, lr.left), new Node<>(key, lr.right, right));
+        }
+
+        return new Node<>(key, left, right);
+    }
+}
@@ -3,9 +3,9 @@ package icurves.algorithm
 import icurves.algorithm.astar.AStarGrid
 import icurves.algorithm.astar.NodeState
 import icurves.diagram.BasicRegion
-import javafx.scene.shape.Polyline
-import math.geom2d.Point2D
-import math.geom2d.polygon.Polygons2D
+import icurves.geometry.JavaGeomClipper
+import icurves.geometry.PackedPolygon
+import icurves.geometry.PolygonClipper
 
 /**
  *
@@ -16,9 +16,12 @@ object EdgeRouter {
 
     private val TILES = 25
 
-    fun route(region1: BasicRegion, region2: BasicRegion): Polyline {
+    /**
+     * @return points of the route from [region1] center to [region2] center, only those two if none was found
+     */
+    @JvmOverloads fun route(region1: BasicRegion, region2: BasicRegion, clipper: PolygonClipper = JavaGeomClipper): PackedPolygon {
 
-        val union = Polygons2D.union(region1.getPolygonShape(), region2.getPolygonShape())
+        val union = clipper.union(region1.getPolygonShape(), region2.getPolygonShape())
 
 
 
@@ -46,13 +49,14 @@ object EdgeRouter {
 
         for (y in 0 until grid.height) {
             for (x in 0 until grid.width) {
-                val tileCenter = Point2D(x.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minX, y.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minY)
+                val tileX = x.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minX
+                val tileY = y.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minY
 
                 val node = grid.getNode(x, y)
 
                 try {
-                    if (union.contains(tileCenter)) {
-                        val dist = -boundary.signedDistance(tileCenter).toInt()
+                    if (union.contains(tileX, tileY)) {
+                        val dist = -boundary.signedDistance(tileX, tileY).toInt()
 
                         if (dist < TILE_SIZE) {
                             node.state = NodeState.NOT_WALKABLE
@@ -94,18 +98,16 @@ object EdgeRouter {
         }
 
         // so that start and end vertices are exactly the same as requested
-        val points = arrayListOf<Double>(region1.center.x, region1.center.y)
+        val points = PackedPolygon.Builder(path.size + 1)
+                .add(region1.center.x, region1.center.y)
 
-        points.addAll(path.map { arrayListOf(it.x, it.y) }
-                .flatten()
-                .mapIndexed { index, value -> value.toDouble() * TILE_SIZE + TILE_SIZE / 2 + (if (index % 2 == 0) bbox.minX else bbox.minY) }
-                .dropLast(2)
-        )
+        path.dropLast(1).forEach {
+            points.add(it.x.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minX, it.y.toDouble() * TILE_SIZE + TILE_SIZE / 2 + bbox.minY)
+        }
 
         // so that start and end vertices are exactly the same as requested
-        points.add(region2.center.x)
-        points.add(region2.center.y)
+        points.add(region2.center.x, region2.center.y)
 
-        return Polyline(*points.toDoubleArray())
+        return points.build()
     }
 }
\ No newline at end of file
@@ -5,64 +5,191 @@ import java.util.*
 /**
  * An abstract basic region, \beta (element of B), is a set of abstract curves.
  *
+ * The set is stored as bits indexed by [AbstractCurve.index],
+ * a single long for up to 64 distinct curve labels.
+ * So equality, hashing and straddle tests do not depend on the number of curves.
+ * Indices are per [CurveLabels], so a region may only be combined with curves and regions of the same labels.
+ *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
-data class AbstractBasicRegion(private val inSetInternal: Set<AbstractCurve>) : Comparable<AbstractBasicRegion> {
+class AbstractBasicRegion private constructor(
 
-    val inSet: SortedSet<AbstractCurve>
+        /**
+         * Bit words, without trailing zero words, so equal sets have equal words.
+         */
+        private val words: LongArray,
 
-    init {
-        inSet = Collections.unmodifiableSortedSet(inSetInternal.toSortedSet())
-    }
+        /**
+         * Labels the bits refer to, null only for the outside region.
+         */
+        private val labels: CurveLabels?) : Comparable<AbstractBasicRegion> {
 
     companion object {
-        @JvmField val OUTSIDE = AbstractBasicRegion(TreeSet())
+        private val NO_WORDS = LongArray(0)
+
+        @JvmField val OUTSIDE = AbstractBasicRegion(NO_WORDS, null)
+
+        private fun toWords(curves: Set<AbstractCurve>): LongArray {
+            if (curves.isEmpty())
+                return NO_WORDS
+
+            val words = LongArray(curves.map { it.index }.max()!! / 64 + 1)
+            curves.forEach { words[it.index / 64] = words[it.index / 64] or (1L shl it.index) }
+            return words
+        }
+
+        private fun trim(words: LongArray): LongArray {
+            var size = words.size
+            while (size > 0 && words[size - 1] == 0L)
+                size--
+
+            return if (size == words.size) words else words.copyOf(size)
+        }
+
+        private fun labelsOf(curves: Set<AbstractCurve>): CurveLabels? {
+            val labels = curves.firstOrNull()?.labels
+
+            if (curves.any { it.labels !== labels })
+                throw IllegalArgumentException("Curves of different descriptions: $curves")
+
+            return labels
+        }
     }
 
-    fun getNumCurves() = inSet.size
+    constructor(inSet: Set<AbstractCurve>) : this(toWords(inSet), labelsOf(inSet))
+
+    private val numCurves = words.sumBy { java.lang.Long.bitCount(it) }
+
+    private val hash = Arrays.hashCode(words)
 
-    fun contains(curve: AbstractCurve) = inSet.contains(curve)
+    /**
+     * Curves of this region in label order, created when first asked for.
+     */
+    val inSet: SortedSet<AbstractCurve> by lazy {
+        Collections.unmodifiableSortedSet(indicesOf(words).mapTo(TreeSet<AbstractCurve>()) { labels!!.fromIndex(it) })
+    }
+
+    fun getNumCurves() = numCurves
 
-    fun moveInside(curve: AbstractCurve) = AbstractBasicRegion(inSet.plus(curve))
+    /**
+     * @throws IllegalArgumentException if [curve] is from another description
+     */
+    fun contains(curve: AbstractCurve): Boolean {
+        sharedLabels(curve.labels)
+        return testBit(words, curve.index)
+    }
 
-    fun moveOutside(curve: AbstractCurve) = AbstractBasicRegion(inSet.minus(curve))
+    fun moveInside(curve: AbstractCurve): AbstractBasicRegion {
+        if (contains(curve))
+            return this
 
+        val labels = sharedLabels(curve.labels)
+
+        val newWords = words.copyOf(maxOf(words.size, curve.index / 64 + 1))
+        newWords[curve.index / 64] = newWords[curve.index / 64] or (1L shl curve.index)
+        return AbstractBasicRegion(newWords, labels)
+    }
+
+    fun moveOutside(curve: AbstractCurve): AbstractBasicRegion {
+        if (!contains(curve))
+            return this
+
+        val newWords = words.copyOf()
+        newWords[curve.index / 64] = newWords[curve.index / 64] and (1L shl curve.index).inv()
+        return AbstractBasicRegion(trim(newWords), labels)
+    }
+
+    /**
+     * @return the only curve that is in one region and not in the other, if regions differ by exactly one curve
+     */
     fun getStraddledContour(otherRegion: AbstractBasicRegion): Optional<AbstractCurve> {
-        if (inSet.size == otherRegion.inSet.size)
+        if (numCurves == otherRegion.numCurves)
             return Optional.empty()
 
-        val biggerSet = if (inSet.size > otherRegion.inSet.size) inSet else otherRegion.inSet
-        val smallerSet = if (inSet == biggerSet) otherRegion.inSet else inSet
+        var index = -1
+
+        for (i in 0 until maxOf(words.size, otherRegion.words.size)) {
+            val diff = wordAt(i) xor otherRegion.wordAt(i)
+            if (diff == 0L)
+                continue
+
+            if (index != -1 || java.lang.Long.bitCount(diff) != 1)
+                return Optional.empty()
 
-        val difference = biggerSet.minus(smallerSet)
-        return if (difference.size != 1) Optional.empty() else Optional.of(difference.first())
+            index = i * 64 + java.lang.Long.numberOfTrailingZeros(diff)
+        }
+
+        return Optional.of(sharedLabels(otherRegion.labels)!!.fromIndex(index))
     }
 
-    override fun equals(other: Any?) = inSet == (other as AbstractBasicRegion).inSet
+    private fun wordAt(i: Int) = if (i < words.size) words[i] else 0L
 
-    override fun hashCode() = inSet.hashCode()
+    /**
+     * @return labels of this region and of a region or curve with [otherLabels]
+     */
+    private fun sharedLabels(otherLabels: CurveLabels?): CurveLabels? {
+        if (labels != null && otherLabels != null && labels !== otherLabels)
+            throw IllegalArgumentException("Region $this is from another description")
 
+        return labels ?: otherLabels
+    }
+
+    override fun equals(other: Any?) = other is AbstractBasicRegion && Arrays.equals(words, other.words)
+            && (words.isEmpty() || labels === other.labels)
+
+    override fun hashCode() = hash
+
+    /**
+     * Orders by number of curves, then by curves in label order.
+     */
     override fun compareTo(other: AbstractBasicRegion): Int {
-        if (other.inSet.size < inSet.size) {
+        if (other.numCurves < numCurves) {
             return 1
-        } else if (other.inSet.size > inSet.size) {
+        } else if (other.numCurves > numCurves) {
             return -1
         }
 
-        // same sized in_set
-        val thisIter = inSet.iterator()
-        val otherIter = other.inSet.iterator()
+        val labels = sharedLabels(other.labels)
+
+        // same sized in_set: the first curve in label order that is only in one of them decides
+        var first: AbstractCurve? = null
+        var inThis = false
+
+        for (i in 0 until maxOf(words.size, other.words.size)) {
+            var diff = wordAt(i) xor other.wordAt(i)
 
-        while (thisIter.hasNext()) {
-            val thisCurve = thisIter.next()
-            val otherCurve = otherIter.next()
-            val comparisonResult = thisCurve.compareTo(otherCurve)
-            if (comparisonResult != 0) {
-                return comparisonResult
+            while (diff != 0L) {
+                val bit = diff and -diff
+                val curve = labels!!.fromIndex(i * 64 + java.lang.Long.numberOfTrailingZeros(bit))
+
+                if (first == null || curve < first) {
+                    first = curve
+                    inThis = (wordAt(i) and bit) != 0L
+                }
+
+                diff = diff xor bit
             }
         }
-        return 0
+
+        return if (first == null) 0 else if (inThis) -1 else 1
     }
 
     override fun toString() = inSet.map { it.label }.joinToString(",", "{", "}")
-}
\ No newline at end of file
+
+    private fun testBit(words: LongArray, index: Int) = index / 64 < words.size && (words[index / 64] and (1L shl index)) != 0L
+
+    private fun indicesOf(words: LongArray): List<Int> {
+        val result = arrayListOf<Int>()
+
+        for (i in words.indices) {
+            var word = words[i]
+
+            while (word != 0L) {
+                result.add(i * 64 + java.lang.Long.numberOfTrailingZeros(word))
+                word = word and (word - 1)
+            }
+        }
+
+        return result
+    }
+}
@@ -2,12 +2,29 @@ package icurves.description
 
 /**
  * An abstract curve \kappa (an element of K).
+ * Curves are equal if their labels are, and are created by [CurveLabels.curve].
  *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
-data class AbstractCurve(val label: String) : Comparable<AbstractCurve> {
+class AbstractCurve internal constructor(
+
+        val label: String,
+
+        /**
+         * Dense index of this curve's label in [labels], used to store sets of curves as bits.
+         */
+        val index: Int,
+
+        /**
+         * Labels of the description this curve belongs to.
+         */
+        val labels: CurveLabels) : Comparable<AbstractCurve> {
+
+    override fun equals(other: Any?) = other is AbstractCurve && label == other.label
+
+    override fun hashCode() = label.hashCode()
 
     override fun compareTo(other: AbstractCurve) = this.label.compareTo(other.label)
 
     override fun toString() = label
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package icurves.description
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Curve labels of one description, with a dense index per label, so that sets of its curves can be stored as bits.
+ * A description parsed or generated from scratch gets new labels, shared by all descriptions derived from it
+ * in the same layout run, e.g. by decomposition. So indices are kept only while those curves are in use.
+ */
+class CurveLabels {
+
+    /**
+     * Label -> dense index.
+     */
+    private val indices = HashMap<String, Int>()
+
+    /**
+     * Index -> curve, only appended to.
+     */
+    private val curves = CopyOnWriteArrayList<AbstractCurve>()
+
+    /**
+     * @return curve with given label, the same instance for the same label
+     */
+    @Synchronized fun curve(label: String): AbstractCurve {
+        val index = indices.getOrPut(label) {
+            curves.add(AbstractCurve(label, curves.size, this))
+            curves.size - 1
+        }
+
+        return curves[index]
+    }
+
+    /**
+     * @return curve with given index
+     */
+    fun fromIndex(index: Int): AbstractCurve = curves[index]
+}
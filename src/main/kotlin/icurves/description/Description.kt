@@ -1,33 +1,58 @@
 package icurves.description
 
+import icurves.util.PersistentSortedSet
 import java.util.*
 
 /**
  * A description, D = (K, B, l), of an Euler diagram.
  *
+ * Curves and zones are kept in persistent sets, so a description made from
+ * [PersistentSortedSet.plus] / [PersistentSortedSet.minus] of another one's sets
+ * shares all unchanged structure with it.
+ *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
 data class Description(private val curvesInternal: Set<AbstractCurve>, private val zonesInternal: Set<AbstractBasicRegion>) {
 
-    val curves: SortedSet<AbstractCurve>
-    val zones: SortedSet<AbstractBasicRegion>
+    val curves: PersistentSortedSet<AbstractCurve> = PersistentSortedSet.of(curvesInternal)
+    val zones: PersistentSortedSet<AbstractBasicRegion> = PersistentSortedSet.of(zonesInternal)
 
-    init {
-        curves = Collections.unmodifiableSortedSet(curvesInternal.toSortedSet())
-        zones = Collections.unmodifiableSortedSet(zonesInternal.toSortedSet())
+    /**
+     * Curve -> zones inside that curve, built on first use.
+     */
+    private val zonesInCurve: Map<AbstractCurve, List<AbstractBasicRegion>> by lazy {
+        curves.associate { curve -> curve.to(zones.filter { it.contains(curve) }) }
     }
 
-    fun getNumZonesIn(curve: AbstractCurve) = zones.filter { it.contains(curve) }.count()
+    /**
+     * Zones for constant time lookup.
+     */
+    private val zoneSet: Set<AbstractBasicRegion> by lazy { HashSet(zones) }
+
+    /**
+     * @return zones inside given curve, in zone order
+     */
+    fun getZonesIn(curve: AbstractCurve) = zonesInCurve[curve] ?: emptyList()
 
-    fun includesLabel(label: String) = curves.contains(AbstractCurve(label))
+    fun getNumZonesIn(curve: AbstractCurve) = getZonesIn(curve).size
+
+    /**
+     * @return the zone that differs from [zone] only by [curve] if it is in this description, else null
+     */
+    fun getNeighbourAcross(zone: AbstractBasicRegion, curve: AbstractCurve): AbstractBasicRegion? {
+        val neighbour = if (zone.contains(curve)) zone.moveOutside(curve) else zone.moveInside(curve)
+        return if (includesZone(neighbour)) neighbour else null
+    }
 
-    fun includesZone(zone: AbstractBasicRegion) = zones.contains(zone)
+    fun includesLabel(label: String) = curves.any { it.label == label }
+
+    fun includesZone(zone: AbstractBasicRegion) = zoneSet.contains(zone)
 
     fun getInformalDescription(): String {
         val sb = StringBuilder();
         for (zone in zones) {
-            for ((label) in zone.inSet) {
-                sb.append(label);
+            for (curve in zone.inSet) {
+                sb.append(curve.label);
             }
 
             sb.append(" ");
@@ -39,12 +64,15 @@ data class Description(private val curvesInternal: Set<AbstractCurve>, private v
     override fun toString() = zones.map { it.toString() }.joinToString(",")
 
     companion object {
+
         @JvmStatic fun from(informalDescription: String): Description {
+            val labels = CurveLabels()
+
             val tmpZones = HashSet<AbstractBasicRegion>()
             tmpZones.add(AbstractBasicRegion.OUTSIDE);
 
             informalDescription.split(" +".toRegex())
-                    .map { it.map { AbstractCurve(it.toString()) } }
+                    .map { it.map { labels.curve(it.toString()) } }
                     .map { AbstractBasicRegion(it.toSet()) }
                     .forEach { tmpZones.add(it) }
 
@@ -0,0 +1,836 @@
+package icurves.diagram
+
+import icurves.description.AbstractBasicRegion
+import icurves.geometry.FixedPointKernel
+import icurves.geometry.Geometry
+import javafx.geometry.Point2D
+import java.util.*
+
+/**
+ * Planar arrangement of curve polygons, kept as a doubly-connected edge list.
+ *
+ * Curves are inserted one by one: edges a new curve crosses are split at the crossings
+ * and its own edges are linked in around the vertices, then faces are traced again.
+ * Each face is labelled with the abstract basic region it lies in, starting from the unbounded face
+ * and going in or out of the curve whose edge is crossed.
+ *
+ * Boundaries that touch or overlap would need special cases, such an arrangement is not valid,
+ * see [isValid], and callers fall back to polygon operations.
+ *
+ * With a [FixedPointKernel], curve vertices and crossings are snapped to its grid and
+ * crossing and touching are decided exactly instead of within [EPSILON].
+ */
+class Arrangement @JvmOverloads constructor(private val kernel: FixedPointKernel? = null) {
+
+    companion object {
+
+        /**
+         * Boundaries closer than this are treated as touching.
+         */
+        private const val EPSILON = 1e-6
+    }
+
+    private class Vertex(val x: Double, val y: Double) {
+
+        /**
+         * Half-edges starting here, in counter-clockwise order once linked.
+         */
+        val outgoing = ArrayList<HalfEdge>(2)
+    }
+
+    /**
+     * Half of an edge of curve number [curve], the face on its left lies inside that curve if [inside].
+     */
+    private class HalfEdge(var origin: Vertex, val curve: Int, val inside: Boolean) {
+        lateinit var twin: HalfEdge
+        lateinit var next: HalfEdge
+
+        /**
+         * Index of the boundary cycle this half-edge is on, valid after faces are traced.
+         */
+        var cycle = -1
+
+        var face: Face? = null
+
+        val target: Vertex
+            get() = twin.origin
+    }
+
+    /**
+     * A face of the arrangement, lying in the abstract basic region [label].
+     */
+    private class Face(
+            val label: AbstractBasicRegion,
+
+            /**
+             * Curves with an edge on the boundary.
+             */
+            val curves: Set<Curve>)
+
+    private val curveList = ArrayList<Curve>()
+    private val versions = ArrayList<Int>()
+
+    /**
+     * Pairs of twins are stored next to each other.
+     */
+    private val halfEdges = ArrayList<HalfEdge>()
+
+    /**
+     * False once a curve could not be inserted, queries then answer nothing.
+     */
+    var isValid = true
+        private set
+
+    /**
+     * Curves inserted so far, in order.
+     */
+    val curves: List<Curve>
+        get() = curveList
+
+    private var facesByLabel: Map<AbstractBasicRegion, List<Face>> = emptyMap()
+
+    private var curvesByLabel: Map<AbstractBasicRegion, Set<Curve>> = emptyMap()
+
+    /**
+     * Only MED asks, and only for some regions, so computed when first needed.
+     */
+    private var adjacentLabels: Lazy<Map<AbstractBasicRegion, Set<AbstractBasicRegion>>> = lazyOf(emptyMap())
+
+    /**
+     * @return true if [curves] start with the curves of this arrangement, none changed since inserted,
+     * so it can be brought up to date by inserting the rest
+     */
+    fun isPrefixOf(curves: List<Curve>): Boolean {
+        if (curves.size < curveList.size)
+            return false
+
+        for (i in curveList.indices) {
+            if (curves[i] !== curveList[i] || curves[i].version != versions[i])
+                return false
+        }
+
+        return true
+    }
+
+    fun insert(curve: Curve) {
+        curveList.add(curve)
+        versions.add(curve.version)
+
+        if (!isValid)
+            return
+
+        val ring = ringOf(curve)
+
+        if (ring == null || !insertRing(ring, curveList.size - 1) || !computeFaces()) {
+            isValid = false
+            facesByLabel = emptyMap()
+            curvesByLabel = emptyMap()
+            adjacentLabels = lazyOf(emptyMap())
+        }
+    }
+
+    /**
+     * Curves on the boundary of the region, plus curves that tell its faces apart from faces of other regions
+     * which are only separated from them by other curves, so polygon operations with these cut out the region.
+     * Every other curve contains all of the region or none of it.
+     *
+     * @return curves that cut out the region [label], null if it has no face
+     */
+    fun getCurves(label: AbstractBasicRegion): Set<Curve>? = curvesByLabel[label]
+
+    /**
+     * @return true if faces of the regions share an edge
+     */
+    fun isAdjacent(label1: AbstractBasicRegion, label2: AbstractBasicRegion): Boolean {
+        return adjacentLabels.value[label1]?.contains(label2) ?: false
+    }
+
+    /**
+     * @return vertices where faces of all [labels] and no other regions meet
+     */
+    fun getMeetingPoints(labels: Collection<AbstractBasicRegion>): List<Point2D> {
+        val wanted = labels.toSet()
+        val first = wanted.firstOrNull() ?: return emptyList()
+        val seen = Collections.newSetFromMap(IdentityHashMap<Vertex, Boolean>())
+        val points = arrayListOf<Point2D>()
+
+        for (h in halfEdges) {
+            val vertex = h.origin
+
+            // every such vertex is on a face of the first region
+            if (h.face!!.label == first && seen.add(vertex)
+                    && vertex.outgoing.all { it.face!!.label in wanted }
+                    && wanted.all { label -> vertex.outgoing.any { it.face!!.label == label } }) {
+                points.add(Point2D(vertex.x, vertex.y))
+            }
+        }
+
+        return points
+    }
+
+    /**
+     * @return the curve's polygon as x, y pairs without repeated points, null if it is not a single ring
+     */
+    private fun ringOf(curve: Curve): DoubleArray? {
+        val contours = curve.getPolygon().contours()
+        if (contours.size != 1)
+            return null
+
+        val coordinates = arrayListOf<Double>()
+
+        for (p in contours.first().vertices()) {
+            val size = coordinates.size
+            val x = snap(p.x()) ?: return null
+            val y = snap(p.y()) ?: return null
+
+            if (size == 0 || length(x - coordinates[size - 2], y - coordinates[size - 1]) > EPSILON) {
+                coordinates.add(x)
+                coordinates.add(y)
+            }
+        }
+
+        while (coordinates.size >= 4 && length(coordinates[0] - coordinates[coordinates.size - 2],
+                coordinates[1] - coordinates[coordinates.size - 1]) <= EPSILON) {
+            coordinates.removeAt(coordinates.size - 1)
+            coordinates.removeAt(coordinates.size - 1)
+        }
+
+        return if (coordinates.size >= 6) coordinates.toDoubleArray() else null
+    }
+
+    /**
+     * @return [value] on the kernel's grid, or as is without a kernel, null if out of the kernel's range
+     */
+    private fun snap(value: Double): Double? {
+        val kernel = kernel ?: return value
+
+        return try {
+            kernel.toDouble(kernel.snap(value))
+        } catch (e: IllegalArgumentException) {
+            null
+        }
+    }
+
+    /**
+     * @return false if the ring touches itself or an inserted edge
+     */
+    private fun insertRing(ring: DoubleArray, curve: Int): Boolean {
+        val n = ring.size / 2
+
+        var area = 0.0
+        for (i in 0 until n) {
+            val j = (i + 1) % n
+            area += ring[i * 2] * ring[j * 2 + 1] - ring[j * 2] * ring[i * 2 + 1]
+        }
+
+        if (Math.abs(area) <= EPSILON)
+            return false
+
+        val counterClockwise = area > 0
+
+        if (if (kernel != null) touchesItself(ring, kernel) else touchesItself(ring))
+            return false
+
+        // crossings of ring segment i and of edge pair m, as parameter along it and the shared vertex
+        val segmentCrossings = HashMap<Int, MutableList<Pair<Double, Vertex>>>()
+        val edgeCrossings = HashMap<Int, MutableList<Pair<Double, Vertex>>>()
+
+        // edge pairs that come near the ring at all
+        val nearby = nearbyEdges(ring)
+
+        for (i in 0 until n) {
+            val x1 = ring[i * 2]
+            val y1 = ring[i * 2 + 1]
+            val x2 = ring[(i + 1) % n * 2]
+            val y2 = ring[(i + 1) % n * 2 + 1]
+            val length1 = length(x2 - x1, y2 - y1)
+
+            for (m in nearby) {
+                val edge = halfEdges[m * 2]
+
+                val x3 = edge.origin.x
+                val y3 = edge.origin.y
+                val x4 = edge.target.x
+                val y4 = edge.target.y
+
+                if (Math.min(x3, x4) - Math.max(x1, x2) > EPSILON || Math.min(x1, x2) - Math.max(x3, x4) > EPSILON
+                        || Math.min(y3, y4) - Math.max(y1, y2) > EPSILON || Math.min(y1, y2) - Math.max(y3, y4) > EPSILON)
+                    continue
+
+                if (kernel != null) {
+                    val u1 = kernel.snap(x1)
+                    val v1 = kernel.snap(y1)
+                    val u2 = kernel.snap(x2)
+                    val v2 = kernel.snap(y2)
+                    val u3 = kernel.snap(x3)
+                    val v3 = kernel.snap(y3)
+                    val u4 = kernel.snap(x4)
+                    val v4 = kernel.snap(y4)
+
+                    if (kernel.crosses(u1, v1, u2, v2, u3, v3, u4, v4)) {
+                        val t = kernel.crossingParameter(u1, v1, u2, v2, u3, v3, u4, v4)
+                        val vertex = Vertex(snap(x1 + t * (x2 - x1))!!, snap(y1 + t * (y2 - y1))!!)
+
+                        // rounding must not move the crossing onto an end, that would leave an empty edge
+                        if (isAt(vertex, x1, y1) || isAt(vertex, x2, y2) || isAt(vertex, x3, y3) || isAt(vertex, x4, y4))
+                            return false
+
+                        segmentCrossings.getOrPut(i) { arrayListOf() }.add(t to vertex)
+                        edgeCrossings.getOrPut(m) { arrayListOf() }.add(kernel.crossingParameter(u3, v3, u4, v4, u1, v1, u2, v2) to vertex)
+                    } else if (kernel.intersects(u1, v1, u2, v2, u3, v3, u4, v4)) {
+                        return false
+                    }
+
+                    continue
+                }
+
+                // signed distances of each segment's ends from the other's line
+                val length2 = length(x4 - x3, y4 - y3)
+                val d3 = cross(x1, y1, x2, y2, x3, y3) / length1
+                val d4 = cross(x1, y1, x2, y2, x4, y4) / length1
+                val d1 = cross(x3, y3, x4, y4, x1, y1) / length2
+                val d2 = cross(x3, y3, x4, y4, x2, y2) / length2
+
+                if (Math.abs(d1) > EPSILON && Math.abs(d2) > EPSILON && Math.abs(d3) > EPSILON && Math.abs(d4) > EPSILON) {
+                    if ((d1 > 0) != (d2 > 0) && (d3 > 0) != (d4 > 0)) {
+                        val t = d1 / (d1 - d2)
+                        val vertex = Vertex(x1 + t * (x2 - x1), y1 + t * (y2 - y1))
+
+                        segmentCrossings.getOrPut(i) { arrayListOf() }.add(t to vertex)
+                        edgeCrossings.getOrPut(m) { arrayListOf() }.add(d3 / (d3 - d4) to vertex)
+                    }
+                } else if (Geometry.segmentDistanceSq(x1, y1, x2, y2, x3, y3, x4, y4) <= EPSILON * EPSILON) {
+                    return false
+                }
+            }
+        }
+
+        // rounded crossings on the same segment may coincide, or bend pieces of it onto other edges
+        if (kernel != null && ((segmentCrossings.values + edgeCrossings.values).any { hasRepeatedVertex(it) }
+                || !piecesMeetAtEnds(ring, nearby, segmentCrossings, edgeCrossings, kernel)))
+            return false
+
+        val relink = Collections.newSetFromMap(IdentityHashMap<Vertex, Boolean>())
+
+        for ((m, crossings) in edgeCrossings) {
+            var edge = halfEdges[m * 2]
+
+            for ((_, vertex) in crossings.sortedBy { it.first }) {
+                relink.add(edge.target)
+                edge = split(edge, vertex)
+            }
+        }
+
+        val vertices = arrayListOf<Vertex>()
+
+        for (i in 0 until n) {
+            vertices.add(Vertex(ring[i * 2], ring[i * 2 + 1]))
+
+            segmentCrossings[i]?.sortedBy { it.first }?.forEach { vertices.add(it.second) }
+        }
+
+        for (i in vertices.indices) {
+            addEdge(vertices[i], vertices[(i + 1) % vertices.size], curve, counterClockwise)
+        }
+
+        relink.addAll(vertices)
+        relink.forEach { link(it) }
+
+        return true
+    }
+
+    private fun isAt(vertex: Vertex, x: Double, y: Double) = vertex.x == x && vertex.y == y
+
+    private fun hasRepeatedVertex(crossings: List<Pair<Double, Vertex>>): Boolean {
+        val sorted = crossings.sortedBy { it.first }
+
+        return (1 until sorted.size).any { isAt(sorted[it].second, sorted[it - 1].second.x, sorted[it - 1].second.y) }
+    }
+
+    /**
+     * Rounding moves a crossing off both segments, so the pieces from it to the segments' ends
+     * may touch or cross edges that the segments kept clear of.
+     *
+     * @return true if the pieces of the ring and of the [nearby] edges, split at their crossings, only meet at shared ends
+     */
+    private fun piecesMeetAtEnds(ring: DoubleArray, nearby: List<Int>,
+                                 segmentCrossings: Map<Int, List<Pair<Double, Vertex>>>,
+                                 edgeCrossings: Map<Int, List<Pair<Double, Vertex>>>,
+                                 kernel: FixedPointKernel): Boolean {
+        val n = ring.size / 2
+
+        // ends in units of the grid, then 1 if an end is a rounded crossing
+        val pieces = arrayListOf<LongArray>()
+
+        fun addPieces(x1: Double, y1: Double, x2: Double, y2: Double, crossings: List<Pair<Double, Vertex>>) {
+            var u = kernel.snap(x1)
+            var v = kernel.snap(y1)
+
+            for ((_, vertex) in crossings.sortedBy { it.first }) {
+                val u2 = kernel.snap(vertex.x)
+                val v2 = kernel.snap(vertex.y)
+
+                pieces.add(longArrayOf(u, v, u2, v2, 1))
+                u = u2
+                v = v2
+            }
+
+            pieces.add(longArrayOf(u, v, kernel.snap(x2), kernel.snap(y2), if (crossings.isEmpty()) 0 else 1))
+        }
+
+        for (i in 0 until n) {
+            addPieces(ring[i * 2], ring[i * 2 + 1], ring[(i + 1) % n * 2], ring[(i + 1) % n * 2 + 1], segmentCrossings[i] ?: emptyList())
+        }
+
+        for (m in nearby) {
+            val edge = halfEdges[m * 2]
+
+            addPieces(edge.origin.x, edge.origin.y, edge.target.x, edge.target.y, edgeCrossings[m] ?: emptyList())
+        }
+
+        // other pieces are where they were tested before
+        for (p in pieces) {
+            if (p[4] == 0L)
+                continue
+
+            val minU = Math.min(p[0], p[2])
+            val minV = Math.min(p[1], p[3])
+            val maxU = Math.max(p[0], p[2])
+            val maxV = Math.max(p[1], p[3])
+
+            for (q in pieces) {
+                if (q === p || Math.max(q[0], q[2]) < minU || Math.min(q[0], q[2]) > maxU
+                        || Math.max(q[1], q[3]) < minV || Math.min(q[1], q[3]) > maxV)
+                    continue
+
+                if (kernel.intersects(p[0], p[1], p[2], p[3], q[0], q[1], q[2], q[3]) && !meetAtEnd(p, q, kernel))
+                    return false
+            }
+        }
+
+        return true
+    }
+
+    /**
+     * @return true if intersecting pieces [p] and [q] only have one end in common
+     */
+    private fun meetAtEnd(p: LongArray, q: LongArray, kernel: FixedPointKernel): Boolean {
+        for (i in 0..1) {
+            for (j in 0..1) {
+                val u = p[i * 2]
+                val v = p[i * 2 + 1]
+
+                if (u != q[j * 2] || v != q[j * 2 + 1])
+                    continue
+
+                val pu = p[2 - i * 2]
+                val pv = p[3 - i * 2]
+                val qu = q[2 - j * 2]
+                val qv = q[3 - j * 2]
+
+                // straight pieces meeting at an end only overlap if they go the same way from it
+                return !(kernel.orientation(u, v, pu, pv, qu, qv) == 0 && (pu - u) * (qu - u) + (pv - v) * (qv - v) > 0)
+            }
+        }
+
+        return false
+    }
+
+    /**
+     * @return indices of edge pairs within [EPSILON] of the ring's bounds, or within a grid spacing with a kernel,
+     * as rounded crossings may move pieces of the ring that far
+     */
+    private fun nearbyEdges(ring: DoubleArray): List<Int> {
+        var minX = Double.MAX_VALUE
+        var minY = Double.MAX_VALUE
+        var maxX = -Double.MAX_VALUE
+        var maxY = -Double.MAX_VALUE
+
+        for (i in 0 until ring.size / 2) {
+            minX = Math.min(minX, ring[i * 2])
+            minY = Math.min(minY, ring[i * 2 + 1])
+            maxX = Math.max(maxX, ring[i * 2])
+            maxY = Math.max(maxY, ring[i * 2 + 1])
+        }
+
+        val margin = if (kernel != null) Math.max(EPSILON, kernel.grid) else EPSILON
+
+        return (0 until halfEdges.size / 2).filter {
+            val edge = halfEdges[it * 2]
+
+            Math.max(edge.origin.x, edge.target.x) >= minX - margin && Math.min(edge.origin.x, edge.target.x) <= maxX + margin
+                    && Math.max(edge.origin.y, edge.target.y) >= minY - margin && Math.min(edge.origin.y, edge.target.y) <= maxY + margin
+        }
+    }
+
+    /**
+     * @return true if non-neighbouring segments of the ring come within [EPSILON] or neighbouring ones fold back
+     */
+    private fun touchesItself(ring: DoubleArray): Boolean {
+        val n = ring.size / 2
+
+        for (i in 0 until n) {
+            val x1 = ring[i * 2]
+            val y1 = ring[i * 2 + 1]
+            val x2 = ring[(i + 1) % n * 2]
+            val y2 = ring[(i + 1) % n * 2 + 1]
+            val x3 = ring[(i + 2) % n * 2]
+            val y3 = ring[(i + 2) % n * 2 + 1]
+
+            if (Math.abs(cross(x1, y1, x2, y2, x3, y3)) <= EPSILON * length(x3 - x2, y3 - y2)
+                    && (x2 - x1) * (x3 - x2) + (y2 - y1) * (y3 - y2) < 0)
+                return true
+
+            for (j in i + 2 until n) {
+                if (i == 0 && j == n - 1)
+                    continue
+
+                val x4 = ring[j * 2]
+                val y4 = ring[j * 2 + 1]
+                val x5 = ring[(j + 1) % n * 2]
+                val y5 = ring[(j + 1) % n * 2 + 1]
+
+                if (Math.min(x4, x5) - Math.max(x1, x2) > EPSILON || Math.min(x1, x2) - Math.max(x4, x5) > EPSILON
+                        || Math.min(y4, y5) - Math.max(y1, y2) > EPSILON || Math.min(y1, y2) - Math.max(y4, y5) > EPSILON)
+                    continue
+
+                if (Geometry.segmentDistanceSq(x1, y1, x2, y2, x4, y4, x5, y5) <= EPSILON * EPSILON)
+                    return true
+            }
+        }
+
+        return false
+    }
+
+    /**
+     * @return true if non-neighbouring segments of the ring have a point in common or neighbouring ones fold back
+     */
+    private fun touchesItself(ring: DoubleArray, kernel: FixedPointKernel): Boolean {
+        val n = ring.size / 2
+        val us = LongArray(n) { kernel.snap(ring[it * 2]) }
+        val vs = LongArray(n) { kernel.snap(ring[it * 2 + 1]) }
+
+        for (i in 0 until n) {
+            val i1 = (i + 1) % n
+            val i2 = (i + 2) % n
+
+            if (kernel.orientation(us[i], vs[i], us[i1], vs[i1], us[i2], vs[i2]) == 0
+                    && (us[i1] - us[i]) * (us[i2] - us[i1]) + (vs[i1] - vs[i]) * (vs[i2] - vs[i1]) < 0)
+                return true
+
+            for (j in i + 2 until n) {
+                if (i == 0 && j == n - 1)
+                    continue
+
+                val j1 = (j + 1) % n
+
+                if (kernel.intersects(us[i], vs[i], us[i1], vs[i1], us[j], vs[j], us[j1], vs[j1]))
+                    return true
+            }
+        }
+
+        return false
+    }
+
+    /**
+     * @return cross product of (x2 - x1, y2 - y1) and (x3 - x1, y3 - y1), positive if (x3, y3) is to the left
+     */
+    private fun cross(x1: Double, y1: Double, x2: Double, y2: Double, x3: Double, y3: Double): Double {
+        return (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1)
+    }
+
+    private fun length(dx: Double, dy: Double) = Math.sqrt(dx * dx + dy * dy)
+
+    private fun addEdge(from: Vertex, to: Vertex, curve: Int, counterClockwise: Boolean) {
+        val edge = HalfEdge(from, curve, counterClockwise)
+        val twin = HalfEdge(to, curve, !counterClockwise)
+        edge.twin = twin
+        twin.twin = edge
+
+        from.outgoing.add(edge)
+        to.outgoing.add(twin)
+
+        halfEdges.add(edge)
+        halfEdges.add(twin)
+    }
+
+    /**
+     * Splits [edge] at [vertex], it then ends there.
+     * Rotations at [vertex] and the old target must be linked again.
+     *
+     * @return the new half-edge from [vertex] to the old target
+     */
+    private fun split(edge: HalfEdge, vertex: Vertex): HalfEdge {
+        val twin = edge.twin
+        val target = twin.origin
+
+        val rest = HalfEdge(vertex, edge.curve, edge.inside)
+        val restTwin = HalfEdge(target, twin.curve, twin.inside)
+        rest.twin = restTwin
+        restTwin.twin = rest
+
+        target.outgoing[target.outgoing.indexOfFirst { it === twin }] = restTwin
+        twin.origin = vertex
+        vertex.outgoing.add(rest)
+        vertex.outgoing.add(twin)
+
+        halfEdges.add(rest)
+        halfEdges.add(restTwin)
+
+        return rest
+    }
+
+    /**
+     * Sorts half-edges around [vertex] and links each arriving half-edge to the next one clockwise,
+     * so faces are on the left of their boundary.
+     */
+    private fun link(vertex: Vertex) {
+        val outgoing = vertex.outgoing
+        outgoing.sortBy { Math.atan2(it.target.y - vertex.y, it.target.x - vertex.x) }
+
+        for (i in outgoing.indices) {
+            outgoing[i].twin.next = outgoing[(i - 1 + outgoing.size) % outgoing.size]
+        }
+    }
+
+    /**
+     * Traces boundary cycles, nests components in the faces around them and labels faces.
+     *
+     * @return false if the structure is inconsistent
+     */
+    private fun computeFaces(): Boolean {
+        halfEdges.forEach { it.cycle = -1 }
+
+        val starts = arrayListOf<HalfEdge>()
+        val areas = arrayListOf<Double>()
+
+        // rings as x, y pairs of counter-clockwise cycles, only these can have other components inside
+        val rings = arrayListOf<DoubleArray?>()
+
+        for (h in halfEdges) {
+            if (h.cycle != -1)
+                continue
+
+            var length = 0
+            var area = 0.0
+            var e = h
+
+            do {
+                if (e.cycle != -1)
+                    return false
+
+                e.cycle = starts.size
+                length++
+                area += e.origin.x * e.target.y - e.target.x * e.origin.y
+                e = e.next
+            } while (e !== h)
+
+            var ring: DoubleArray? = null
+            if (area > 0) {
+                ring = DoubleArray(length * 2)
+                for (i in 0 until length) {
+                    ring[i * 2] = e.origin.x
+                    ring[i * 2 + 1] = e.origin.y
+                    e = e.next
+                }
+            }
+
+            starts.add(h)
+            rings.add(ring)
+            areas.add(area / 2)
+        }
+
+        // connected components, a cycle and the one across each of its edges are in the same one
+        val component = IntArray(starts.size) { it }
+
+        fun find(c: Int): Int {
+            var root = c
+            while (component[root] != root)
+                root = component[root]
+
+            component[c] = root
+            return root
+        }
+
+        halfEdges.forEach { component[find(it.cycle)] = find(it.twin.cycle) }
+
+        // bounded faces are counter-clockwise cycles, each component has one clockwise cycle around it
+        val bounded = starts.indices.filter { areas[it] > 0 }
+        val outer = starts.indices.filter { areas[it] <= 0 }
+
+        if (outer.map { find(it) }.toSet().size != outer.size)
+            return false
+
+        // face of each cycle: its own index if bounded, else the innermost bounded cycle of another component around it,
+        // or -1 for the unbounded face
+        val faceOf = IntArray(starts.size) { it }
+
+        for (c in outer) {
+            val x = starts[c].origin.x
+            val y = starts[c].origin.y
+
+            faceOf[c] = bounded.filter { find(it) != find(c) && contains(rings[it]!!, x, y) }.minBy { areas[it] } ?: -1
+        }
+
+        // label faces outwards from the unbounded one, its index is starts.size
+        val unbounded = starts.size
+        val cyclesOf = Array(starts.size + 1) { arrayListOf<Int>() }
+
+        // outer ring first
+        bounded.forEach { cyclesOf[it].add(it) }
+        outer.forEach { cyclesOf[if (faceOf[it] == -1) unbounded else faceOf[it]].add(it) }
+
+        val labels = arrayOfNulls<AbstractBasicRegion>(starts.size + 1)
+        labels[unbounded] = AbstractBasicRegion.OUTSIDE
+
+        val queue = ArrayDeque<Int>()
+        queue.add(unbounded)
+        var numLabelled = 1
+
+        while (queue.isNotEmpty()) {
+            val face = queue.poll()
+            val label = labels[face]!!
+
+            for (c in cyclesOf[face]) {
+                var e = starts[c]
+
+                do {
+                    val curve = curveList[e.curve].abstractCurve
+
+                    if (label.contains(curve) != e.inside)
+                        return false
+
+                    val otherCycle = faceOf[e.twin.cycle]
+                    val otherFace = if (otherCycle == -1) unbounded else otherCycle
+                    val otherLabel = if (e.inside) label.moveOutside(curve) else label.moveInside(curve)
+                    val known = labels[otherFace]
+
+                    if (known == null) {
+                        labels[otherFace] = otherLabel
+                        queue.add(otherFace)
+                        numLabelled++
+                    } else if (known != otherLabel) {
+                        return false
+                    }
+
+                    e = e.next
+                } while (e !== starts[c])
+            }
+        }
+
+        if (numLabelled != bounded.size + 1)
+            return false
+
+        val faces = arrayOfNulls<Face>(starts.size + 1)
+
+        for (face in faces.indices) {
+            if (cyclesOf[face].isEmpty())
+                continue
+
+            val curves = LinkedHashSet<Curve>()
+
+            cyclesOf[face].forEach { c ->
+                var e = starts[c]
+                do {
+                    curves.add(curveList[e.curve])
+                    e = e.next
+                } while (e !== starts[c])
+            }
+
+            faces[face] = Face(labels[face]!!, curves)
+        }
+
+        halfEdges.forEach { it.face = faces[if (faceOf[it.cycle] == -1) unbounded else faceOf[it.cycle]] }
+
+        facesByLabel = faces.filterNotNull().groupBy { it.label }
+        curvesByLabel = cuttingCurves()
+        adjacentLabels = lazy { computeAdjacentLabels() }
+
+        return true
+    }
+
+    /**
+     * Two regions differ on some curve, faces of a region are cut out by such a curve for every other region,
+     * curves on the boundary already tell apart all regions next to it.
+     *
+     * @return curves that cut out each region, see [getCurves]
+     */
+    private fun cuttingCurves(): Map<AbstractBasicRegion, Set<Curve>> {
+        val labels = facesByLabel.keys.toList()
+        val indexOf = HashMap<AbstractBasicRegion, Int>()
+        labels.forEachIndexed { i, label -> indexOf[label] = i }
+
+        // curves each region lies in and curves on the boundary of its faces, by index
+        val insideOf = labels.map { label -> BitSet().also { bits -> curveList.forEachIndexed { i, curve -> if (label.contains(curve.abstractCurve)) bits.set(i) } } }
+        val boundaryOf = labels.map { BitSet() }
+        halfEdges.forEach { boundaryOf[indexOf[it.face!!.label]!!].set(it.curve) }
+
+        val curves = HashMap<AbstractBasicRegion, Set<Curve>>()
+
+        for (i in labels.indices) {
+            val cutting = boundaryOf[i].clone() as BitSet
+
+            for (j in labels.indices) {
+                if (i == j)
+                    continue
+
+                val difference = insideOf[i].clone() as BitSet
+                difference.xor(insideOf[j])
+
+                if (!difference.intersects(cutting))
+                    cutting.set(difference.nextSetBit(0))
+            }
+
+            // boundary curves first, as on the faces
+            val set = LinkedHashSet<Curve>()
+            facesByLabel[labels[i]]!!.forEach { set.addAll(it.curves) }
+
+            var c = cutting.nextSetBit(0)
+            while (c >= 0) {
+                set.add(curveList[c])
+                c = cutting.nextSetBit(c + 1)
+            }
+
+            curves[labels[i]] = set
+        }
+
+        return curves
+    }
+
+    private fun computeAdjacentLabels(): Map<AbstractBasicRegion, Set<AbstractBasicRegion>> {
+        val adjacent = HashMap<AbstractBasicRegion, MutableSet<AbstractBasicRegion>>()
+
+        for (i in 0 until halfEdges.size / 2) {
+            val label1 = halfEdges[i * 2].face!!.label
+            val label2 = halfEdges[i * 2 + 1].face!!.label
+
+            adjacent.getOrPut(label1) { HashSet() }.add(label2)
+            adjacent.getOrPut(label2) { HashSet() }.add(label1)
+        }
+
+        return adjacent
+    }
+
+    /**
+     * @return true if (x, y) is inside the ring given as x, y pairs
+     */
+    private fun contains(ring: DoubleArray, x: Double, y: Double): Boolean {
+        var inside = false
+        val n = ring.size / 2
+
+        var j = n - 1
+        for (i in 0 until n) {
+            val xi = ring[i * 2]
+            val yi = ring[i * 2 + 1]
+            val xj = ring[j * 2]
+            val yj = ring[j * 2 + 1]
+
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi)
+                inside = !inside
+
+            j = i
+        }
+
+        return inside
+    }
+}
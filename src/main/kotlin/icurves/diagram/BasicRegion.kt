@@ -1,16 +1,18 @@
 package icurves.diagram
 
-import icurves.CurvesApp
 import icurves.description.AbstractBasicRegion
 import icurves.description.AbstractCurve
+import icurves.diagram.curve.CircleCurve
+import icurves.geometry.Circles
+import icurves.geometry.Geometry
+import icurves.layout.LayoutSettings
 import icurves.util.Polylabel
 import javafx.geometry.Point2D
-import javafx.scene.paint.Color
-import javafx.scene.shape.Rectangle
 import javafx.scene.shape.Shape
+import math.geom2d.Box2D
+import math.geom2d.circulinear.CirculinearContourArray2D
+import math.geom2d.polygon.LinearRing2D
 import math.geom2d.polygon.Polygon2D
-import math.geom2d.polygon.Polygons2D
-import math.geom2d.polygon.SimplePolygon2D
 import java.util.*
 
 /**
@@ -28,24 +30,126 @@ class BasicRegion(
         /**
          * Curves within this zone.
          */
-        val containingCurves: MutableList<Curve>,
+        val containingCurves: List<Curve>,
 
         /**
          * Curves outside of this zone.
          */
-        val excludingCurves: MutableList<Curve>) {
+        val excludingCurves: List<Curve>,
 
-    constructor(abRegion: AbstractBasicRegion, curveToContour: Map<AbstractCurve, Curve>) : this(abRegion, arrayListOf(), ArrayList(curveToContour.values)) {
-        for (curve in abRegion.inSet) {
-            val contour = curveToContour[curve]!!
+        /**
+         * Settings of the layout this region belongs to.
+         */
+        private val settings: LayoutSettings,
+
+        /**
+         * Curves that cut out this region, see [Arrangement.getCurves], or null if not known.
+         * The other curves contain all of the region or none of it, so its polygon is computed from these only.
+         */
+        private val cuttingCurves: Set<Curve>? = null) {
 
-            excludingCurves.remove(contour)
-            containingCurves.add(contour)
+    @JvmOverloads constructor(abRegion: AbstractBasicRegion, curveToContour: Map<AbstractCurve, Curve>, settings: LayoutSettings,
+                              cuttingCurves: Set<Curve>? = null)
+            : this(abRegion,
+            abRegion.inSet.map { curveToContour[it]!! },
+            curveToContour.values.filter { !abRegion.contains(it.abstractCurve) },
+            settings,
+            cuttingCurves)
+
+    companion object {
+
+        /**
+         * Boundaries of adjacent regions are at most this far apart.
+         */
+        const val ADJACENCY_DISTANCE = 5.0
+
+        /**
+         * Relative slack for analytic tests against curve polygons, whose vertices are placed by repeated rotation.
+         */
+        private const val POLYGON_TOLERANCE = 1e-6
+    }
+
+    /**
+     * Geometry computed from the curves, valid while none of them changes.
+     */
+    private class Cache(val versions: IntArray) {
+        @Volatile var polygon: Polygon2D? = null
+        @Volatile var boundingBox: Box2D? = null
+        @Volatile var boundary: CirculinearContourArray2D<out LinearRing2D>? = null
+        @Volatile var boundarySegments: DoubleArray? = null
+        @Volatile var center: Point2D? = null
+
+        /**
+         * Polygon (with the geometry derived from it) computed for this region in an earlier step,
+         * taken over if none of the curves added since touch it.
+         */
+        var earlierPolygon: Earlier<Cache>? = null
+
+        fun copy(): Cache {
+            val copy = Cache(versions)
+            copy.polygon = polygon
+            copy.boundingBox = boundingBox
+            copy.boundary = boundary
+            copy.boundarySegments = boundarySegments
+            copy.center = center
+            return copy
         }
     }
 
+    /**
+     * A [value] computed before [addedCurves] were added to the diagram.
+     */
+    private class Earlier<out T>(val value: T, val addedCurves: List<Curve>) {
+
+        fun plus(curves: List<Curve>) = Earlier(value, addedCurves + curves)
+    }
+
+    @Volatile private var cache = Cache(curveVersions())
+
+    /**
+     * Versions of the curves [cuttingCurves] hold for.
+     */
+    private val cuttingVersions = cache.versions
+
+    private fun curveVersions() = (containingCurves + excludingCurves).map { it.version }.toIntArray()
+
+    /**
+     * @return cached geometry, emptied first if any of the curves changed since it was computed
+     */
+    private fun cache(): Cache {
+        val cache = this.cache
+
+        var i = 0
+        for (curve in containingCurves) {
+            if (cache.versions[i++] != curve.version)
+                return Cache(curveVersions()).also { this.cache = it }
+        }
+
+        for (curve in excludingCurves) {
+            if (cache.versions[i++] != curve.version)
+                return Cache(curveVersions()).also { this.cache = it }
+        }
+
+        return cache
+    }
+
+    /**
+     * @param curves curves added to the diagram since this region was created
+     * @param cuttingCurves curves that cut out the region in the new diagram, if known
+     * @return this region in the new diagram, which reuses geometry computed so far where [curves] do not touch it
+     */
+    fun withExcluded(curves: List<Curve>, cuttingCurves: Set<Curve>? = null): BasicRegion {
+        val region = BasicRegion(abRegion, containingCurves, excludingCurves + curves, settings, cuttingCurves)
+        val cache = cache()
+
+        // only the latest value is kept, so regions never hold on to a chain of history
+        region.cache.earlierPolygon = if (cache.polygon != null) Earlier(cache.copy(), curves) else cache.earlierPolygon?.plus(curves)
+
+        return region
+    }
+
     fun getShape(): Shape {
-        var shape: Shape = CurvesApp.getInstance().settings.fxBBox
+        var shape: Shape = settings.createFXBBox()
 
         for (curve in containingCurves) {
             shape = Shape.intersect(shape, curve.getShape())
@@ -58,71 +162,178 @@ class BasicRegion(
         return shape
     }
 
-    fun intersects(shape: Shape): Boolean {
-        return !Shape.intersect(getShape(), shape).layoutBounds.isEmpty
+    /**
+     * @return true if this region was carried over from [earlier] and its polygon was reused,
+     * i.e. no curve added since touches it
+     */
+    fun isUnchangedFrom(earlier: BasicRegion): Boolean {
+        return abRegion == earlier.abRegion && getPolygonShape() === earlier.getPolygonShape()
     }
 
-    val center by lazy { computeVisualCentre() }
+    val center: Point2D
+        get() {
+            val polygon = getPolygonShape()
+            val cache = cache()
 
-    private fun computeVisualCentre(): Point2D {
-        if (polygonShape == null)
-            polygonShape = getPolygonShape()
-
-        if (polygonShape!!.toString().contains("Multi")) {
-            // multipolygon (with a hole) so center compute fails
+            return cache.center ?: Polylabel.findCenter(polygon).also { cache.center = it }
         }
 
-        return Polylabel.findCenter(polygonShape!!)
+    /**
+     * @return region model for computational geometry, shared so it must not be modified
+     */
+    fun getPolygonShape(): Polygon2D {
+        val cache = cache()
+
+        return cache.polygon ?: (reusedPolygon(cache) ?: computePolygonShape(cache)).also { cache.polygon = it }
     }
 
-    private var polygonShape: Polygon2D? = null
+    private fun computePolygonShape(cache: Cache): Polygon2D {
+        var polygonShape = settings.geomBBox
+        val clipper = settings.polygonEngine.clipper
 
-    fun getPolygonShape(): Polygon2D {
-        polygonShape = CurvesApp.getInstance().settings.geomBBox
+        // cutting curves only hold while no curve changed
+        val curves = if (Arrays.equals(cache.versions, cuttingVersions)) cuttingCurves else null
 
-        containingCurves.map({ c -> c.getPolygon() }).forEach { p -> polygonShape = Polygons2D.intersection(polygonShape!!, p) }
+        containingCurves.filter { curves?.contains(it) ?: true }
+                .map({ c -> c.getPolygon() }).forEach { p -> polygonShape = clipper.intersection(polygonShape, p) }
 
-        excludingCurves.map({ c -> c.getPolygon() }).forEach { p -> polygonShape = Polygons2D.difference(polygonShape!!, p) }
+        excludingCurves.filter { curves?.contains(it) ?: true }
+                .map({ c -> c.getPolygon() }).forEach { p -> polygonShape = clipper.difference(polygonShape, p) }
 
-        return polygonShape!!
+        return polygonShape
     }
 
-    fun isTopologicallyAdjacent(other: BasicRegion): Boolean {
-        if (abRegion.getStraddledContour(other.abRegion).isPresent) {
-            val shape2 = other.getShape()
+    /**
+     * Also takes over the geometry derived from the polygon.
+     *
+     * @return polygon of this region before curves were added if none of them overlap it, else null
+     */
+    private fun reusedPolygon(cache: Cache): Polygon2D? {
+        val earlier = cache.earlierPolygon ?: return null
+        val earlierCache = earlier.value
+        val polygon = earlierCache.polygon ?: return null
+        val box = earlierCache.boundingBox ?: polygon.boundingBox()
+        val segments = lazy { earlierCache.boundarySegments ?: computeBoundarySegments(earlierCache.boundary ?: polygon.boundary()) }
+
+        val touched = earlier.addedCurves.any {
+            val curveBox = it.getPolygon().boundingBox()
+
+            box.maxX > curveBox.minX && curveBox.maxX > box.minX && box.maxY > curveBox.minY && curveBox.maxY > box.minY
+                    && touches(polygon, segments, it)
+        }
 
-            shape2.setTranslateX(shape2.getTranslateX() - 5)
+        if (touched)
+            return null
 
-            if (intersects(shape2)) {
-                // put it back
-                shape2.setTranslateX(shape2.getTranslateX() + 5)
-                return true
+        cache.boundingBox = box
+        cache.boundary = earlierCache.boundary
+        cache.boundarySegments = earlierCache.boundarySegments
+        cache.center = earlierCache.center
+        return polygon
+    }
+
+    /**
+     * @param segments boundary segments of [polygon]
+     * @return true if [polygon] and the polygon of [curve] overlap
+     */
+    private fun touches(polygon: Polygon2D, segments: Lazy<DoubleArray>, curve: Curve): Boolean {
+        if (curve is CircleCurve) {
+            val (cx, cy, inradius, circumradius) = curve.getPolygonCircles().toList()
+            val eps = POLYGON_TOLERANCE * circumradius
+
+            val points = segments.value
+            var min = Double.MAX_VALUE
+
+            var i = 0
+            while (i < points.size) {
+                // a vertex inside the curve's polygon has some of this polygon around it
+                if (Circles.contains(cx, cy, inradius - eps, points[i], points[i + 1]))
+                    return true
+
+                min = Math.min(min, Circles.minDistance(cx, cy, points[i], points[i + 1], points[i + 2], points[i + 3]))
+                i += 4
             }
 
-            shape2.setTranslateX(shape2.getTranslateX() + 10)
+            // boundaries apart, so one is inside the other or they are disjoint
+            if (min > circumradius + eps)
+                return polygon.contains(cx, cy)
+        }
 
-            if (intersects(shape2)) {
-                shape2.setTranslateX(shape2.getTranslateX() - 5)
-                return true
-            }
+        return intersects(polygon, curve.getPolygon())
+    }
 
-            shape2.setTranslateX(shape2.getTranslateX() - 5)
-            shape2.setTranslateY(shape2.getTranslateY() - 5)
+    private fun intersects(polygon1: Polygon2D, polygon2: Polygon2D): Boolean {
+        try {
+            return settings.polygonEngine.clipper.intersection(polygon1, polygon2).vertexNumber() > 0
+        } catch (e: IllegalStateException) {
+            // the clipper rejects some multi-ring polygons, assume they do
+            return true
+        }
+    }
 
-            if (intersects(shape2)) {
-                shape2.setTranslateY(shape2.getTranslateY() + 5)
-                return true
-            }
+    fun getBoundingBox(): Box2D {
+        val polygon = getPolygonShape()
+        val cache = cache()
 
-            shape2.setTranslateY(shape2.getTranslateY() + 10)
+        return cache.boundingBox ?: polygon.boundingBox().also { cache.boundingBox = it }
+    }
+
+    fun getBoundary(): CirculinearContourArray2D<out LinearRing2D> {
+        val polygon = getPolygonShape()
+        val cache = cache()
+
+        return cache.boundary ?: polygon.boundary().also { cache.boundary = it }
+    }
+
+    /**
+     * @return segments of all rings of the boundary as x1, y1, x2, y2 quadruples
+     */
+    private fun getBoundarySegments(): DoubleArray {
+        val boundary = getBoundary()
+        val cache = cache()
+
+        return cache.boundarySegments ?: computeBoundarySegments(boundary).also { cache.boundarySegments = it }
+    }
+
+    private fun computeBoundarySegments(boundary: CirculinearContourArray2D<out LinearRing2D>): DoubleArray {
+        val rings = boundary.curves()
+        val segments = DoubleArray(rings.sumBy { it.vertexNumber() } * 4)
 
-            if (intersects(shape2)) {
-                shape2.setTranslateY(shape2.getTranslateY() - 5)
-                return true
+        var i = 0
+        for (ring in rings) {
+            val vertices = ring.vertices().toList()
+
+            for (j in vertices.indices) {
+                val p1 = vertices[j]
+                val p2 = vertices[(j + 1) % vertices.size]
+
+                segments[i++] = p1.x()
+                segments[i++] = p1.y()
+                segments[i++] = p2.x()
+                segments[i++] = p2.y()
             }
         }
 
-        return false
+        return segments
+    }
+
+    /**
+     * Regions are adjacent if they differ by one curve and their boundaries come within [ADJACENCY_DISTANCE].
+     * Regions split by a curve share the boundary along it, so this also accepts regions separated by a gap
+     * narrower than the distance, e.g. where the curve's stroke is.
+     */
+    fun isTopologicallyAdjacent(other: BasicRegion): Boolean {
+        if (!abRegion.getStraddledContour(other.abRegion).isPresent)
+            return false
+
+        val box = getBoundingBox()
+        val otherBox = other.getBoundingBox()
+
+        if (box.minX - otherBox.maxX > ADJACENCY_DISTANCE || otherBox.minX - box.maxX > ADJACENCY_DISTANCE
+                || box.minY - otherBox.maxY > ADJACENCY_DISTANCE || otherBox.minY - box.maxY > ADJACENCY_DISTANCE)
+            return false
+
+        return Geometry.isWithin(getBoundarySegments(), other.getBoundarySegments(), ADJACENCY_DISTANCE)
     }
 
     fun toDebugString(): String {
@@ -1,8 +1,12 @@
 package icurves.diagram
 
 import icurves.description.AbstractCurve
+import icurves.geometry.Geometry
 import javafx.scene.shape.Shape
 import math.geom2d.polygon.Polygon2D
+import java.awt.geom.Area
+import java.awt.geom.Line2D
+import java.awt.geom.Rectangle2D
 
 /**
  * A closed curve, c (element of C).
@@ -11,24 +15,64 @@ import math.geom2d.polygon.Polygon2D
  */
 abstract class Curve(val abstractCurve: AbstractCurve) {
 
-//    /**
-//     * @return a curve model for computational geometry.
-//     */
-//    val polygon by lazy { computePolygon() }
-//
-//    /**
-//     * @return a bitmap view for rendering.
-//     */
-//    val shape by lazy { computeShape() }
+    /**
+     * Incremented by [invalidate], so geometry derived from this curve knows when to recompute.
+     */
+    @Volatile var version = 0
+        private set
 
-    fun getPolygon() = computePolygon()
+    @Volatile private var polygon: Polygon2D? = null
+    @Volatile private var outline: Area? = null
 
+    /**
+     * Drops cached geometry.
+     * Must be called after the curve is changed in place, [icurves.diagram.curve.CircleCurve] does so itself.
+     */
+    fun invalidate() {
+        polygon = null
+        outline = null
+        version++
+    }
+
+    /**
+     * @return a curve model for computational geometry, shared so it must not be modified
+     */
+    fun getPolygon() = polygon ?: computePolygon().also { polygon = it }
+
+    /**
+     * A node can only be in one scene graph and callers style it, so each call creates a new shape.
+     *
+     * @return a view for rendering
+     */
     fun getShape() = computeShape()
 
+    /**
+     * @return area covered by this curve's stroke only, used to test which curves a segment crosses, shared so it must not be modified
+     */
+    fun getOutline() = outline ?: computeOutline().also { outline = it }
+
+    /**
+     * @return true if [segment], stroked with [width], overlaps the outline, see [Geometry.intersects]
+     */
+    open fun isOutlineCrossedBy(segment: Line2D, width: Double): Boolean {
+        return Geometry.intersects(getOutline(), Geometry.stroke(segment, width))
+    }
+
     abstract fun computePolygon(): Polygon2D
 
     abstract fun computeShape(): Shape
 
+    abstract fun computeOutline(): Area
+
+    /**
+     * @return area of [path] drawn with a 1px stroke and clipped to the drawing box, as in [computeShape] of paths
+     */
+    protected fun drawnArea(path: java.awt.Shape): Area {
+        val area = Geometry.fillAndStroke(path, 1.0)
+        area.intersect(Area(Rectangle2D.Double(-3000.0, -3000.0, 10000.0, 10000.0)))
+        return area
+    }
+
     abstract fun toDebugString(): String
 
     override fun toString() = abstractCurve.toString()
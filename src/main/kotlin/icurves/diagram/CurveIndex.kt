@@ -0,0 +1,208 @@
+package icurves.diagram
+
+import icurves.geometry.Geometry
+import java.awt.Shape
+import java.awt.geom.FlatteningPathIterator
+import java.awt.geom.Line2D
+import java.awt.geom.PathIterator
+import java.util.*
+
+/**
+ * Uniform grid over the outlines of [curves], to find which curves a segment crosses.
+ *
+ * The grid only narrows down candidates: a curve whose outline boundary does not come near the segment
+ * cannot overlap it. Candidates are tested exactly, as without the index.
+ * Built for one set of curves in one state, see [isFor].
+ */
+class CurveIndex(val curves: List<Curve>) {
+
+    companion object {
+        private const val CELL_SIZE = 64.0
+
+        private const val FLATNESS = 0.25
+
+        /**
+         * Width of the stroke a segment is tested with.
+         */
+        private const val SEGMENT_WIDTH = 1.0
+
+        /**
+         * If a stroked segment overlaps an outline, the outline boundary comes this close to the segment:
+         * miter joins of the stroke reach 5px, outlines are at most 2px wide, plus flattening.
+         */
+        private const val MARGIN = 8.0
+    }
+
+    private val versions = curves.map { it.version }.toIntArray()
+
+    /**
+     * Flattened outline boundaries as x1, y1, x2, y2 quadruples, with the index of their curve.
+     */
+    private var segments = DoubleArray(1024)
+    private var segmentCurves = IntArray(256)
+    private var numSegments = 0
+
+    /**
+     * Cell key -> indices of segments whose bounds touch the cell.
+     */
+    private val cells = HashMap<Long, MutableList<Int>>()
+
+    init {
+        curves.forEachIndexed { i, curve -> forEachSegment(curve.getOutline()) { x1, y1, x2, y2 -> addSegment(i, x1, y1, x2, y2) } }
+
+        for (s in 0 until numSegments) {
+            val x1 = segments[s * 4]
+            val y1 = segments[s * 4 + 1]
+            val x2 = segments[s * 4 + 2]
+            val y2 = segments[s * 4 + 3]
+
+            for (cx in cell(Math.min(x1, x2))..cell(Math.max(x1, x2))) {
+                for (cy in cell(Math.min(y1, y2))..cell(Math.max(y1, y2))) {
+                    cells.getOrPut(key(cx, cy)) { arrayListOf() }.add(s)
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if this index is up to date for [curves]
+     */
+    fun isFor(curves: List<Curve>): Boolean {
+        if (curves.size != this.curves.size)
+            return false
+
+        for (i in curves.indices) {
+            if (curves[i] !== this.curves[i] || curves[i].version != versions[i])
+                return false
+        }
+
+        return true
+    }
+
+    /**
+     * @return curves, in order, whose outline [q] overlaps when stroked, see [Geometry.intersects]
+     */
+    fun crossedBy(q: Shape): List<Curve> {
+        val candidates = BooleanArray(curves.size)
+        var numCandidates = 0
+
+        forEachSegment(q) { x1, y1, x2, y2 ->
+            if (numCandidates < curves.size) {
+                forEachCell(x1, y1, x2, y2) { cell ->
+                    for (s in cell) {
+                        val curve = segmentCurves[s]
+
+                        if (!candidates[curve] && isNear(s, x1, y1, x2, y2)) {
+                            candidates[curve] = true
+                            numCandidates++
+                        }
+                    }
+                }
+            }
+        }
+
+        if (numCandidates == 0)
+            return emptyList()
+
+        if (q is Line2D)
+            return curves.filterIndexed { i, curve -> candidates[i] && curve.isOutlineCrossedBy(q, SEGMENT_WIDTH) }
+
+        val stroke = Geometry.stroke(q, SEGMENT_WIDTH)
+
+        return curves.filterIndexed { i, curve -> candidates[i] && Geometry.intersects(curve.getOutline(), stroke) }
+    }
+
+    private fun isNear(s: Int, x1: Double, y1: Double, x2: Double, y2: Double): Boolean {
+        return Geometry.segmentDistanceSq(segments[s * 4], segments[s * 4 + 1], segments[s * 4 + 2], segments[s * 4 + 3],
+                x1, y1, x2, y2) < MARGIN * MARGIN
+    }
+
+    private fun addSegment(curve: Int, x1: Double, y1: Double, x2: Double, y2: Double) {
+        if (numSegments == segmentCurves.size) {
+            segments = segments.copyOf(segments.size * 2)
+            segmentCurves = segmentCurves.copyOf(segmentCurves.size * 2)
+        }
+
+        segments[numSegments * 4] = x1
+        segments[numSegments * 4 + 1] = y1
+        segments[numSegments * 4 + 2] = x2
+        segments[numSegments * 4 + 3] = y2
+        segmentCurves[numSegments] = curve
+        numSegments++
+    }
+
+    /**
+     * Calls [action] with each line segment of flattened [shape].
+     */
+    private inline fun forEachSegment(shape: Shape, action: (Double, Double, Double, Double) -> Unit) {
+        val coords = DoubleArray(6)
+        var startX = 0.0
+        var startY = 0.0
+        var lastX = 0.0
+        var lastY = 0.0
+
+        val it = FlatteningPathIterator(shape.getPathIterator(null), FLATNESS)
+
+        while (!it.isDone) {
+            when (it.currentSegment(coords)) {
+                PathIterator.SEG_MOVETO -> {
+                    startX = coords[0]
+                    startY = coords[1]
+                    lastX = startX
+                    lastY = startY
+                }
+
+                PathIterator.SEG_LINETO -> {
+                    action(lastX, lastY, coords[0], coords[1])
+                    lastX = coords[0]
+                    lastY = coords[1]
+                }
+
+                PathIterator.SEG_CLOSE -> {
+                    action(lastX, lastY, startX, startY)
+                    lastX = startX
+                    lastY = startY
+                }
+            }
+
+            it.next()
+        }
+    }
+
+    /**
+     * Calls [action] with each cell within [MARGIN] of the segment, going column by column.
+     */
+    private inline fun forEachCell(x1: Double, y1: Double, x2: Double, y2: Double, action: (List<Int>) -> Unit) {
+        val minX = Math.min(x1, x2)
+        val maxX = Math.max(x1, x2)
+
+        for (cx in cell(minX - MARGIN)..cell(maxX + MARGIN)) {
+
+            // part of the segment within this column, widened by margin
+            val fromX = Math.max(minX, cx * CELL_SIZE - MARGIN)
+            val toX = Math.min(maxX, (cx + 1) * CELL_SIZE + MARGIN)
+
+            val fromY: Double
+            val toY: Double
+
+            if (x1 == x2) {
+                fromY = Math.min(y1, y2)
+                toY = Math.max(y1, y2)
+            } else {
+                val yAtFrom = y1 + (y2 - y1) * (fromX - x1) / (x2 - x1)
+                val yAtTo = y1 + (y2 - y1) * (toX - x1) / (x2 - x1)
+
+                fromY = Math.min(yAtFrom, yAtTo)
+                toY = Math.max(yAtFrom, yAtTo)
+            }
+
+            for (cy in cell(fromY - MARGIN)..cell(toY + MARGIN)) {
+                cells[key(cx, cy)]?.let(action)
+            }
+        }
+    }
+
+    private fun cell(coordinate: Double) = Math.floor(coordinate / CELL_SIZE).toInt()
+
+    private fun key(cx: Int, cy: Int) = (cx.toLong() shl 32) or (cy.toLong() and 0xFFFFFFFFL)
+}
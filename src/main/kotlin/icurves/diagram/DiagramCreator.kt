@@ -10,10 +10,11 @@ import icurves.graph.EulerDualEdge
 import icurves.graph.EulerDualNode
 import icurves.graph.GraphCycle
 import icurves.graph.MED
-import icurves.guifx.SettingsController
+import icurves.layout.LayoutSettings
 import icurves.recomposition.PiercingData
 import icurves.recomposition.RecomposerFactory
 import icurves.recomposition.RecompositionData
+import icurves.recomposition.RecompositionStep
 import icurves.util.BezierApproximation
 import icurves.util.Profiler
 import javafx.collections.FXCollections
@@ -21,6 +22,7 @@ import javafx.geometry.Point2D
 import javafx.scene.paint.Color
 import javafx.scene.shape.*
 import org.apache.logging.log4j.LogManager
+import java.awt.geom.Path2D
 import java.util.*
 
 /**
@@ -30,7 +32,7 @@ import java.util.*
  *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
-class DiagramCreator(val settings: SettingsController) {
+class DiagramCreator(val settings: LayoutSettings) {
 
     companion object {
         private val log = LogManager.getLogger(DiagramCreator::class.java)
@@ -55,13 +57,31 @@ class DiagramCreator(val settings: SettingsController) {
      * Basic regions for current step.
      * Immutable, gets rewritten every step.
      */
-    private lateinit var basicRegions: List<BasicRegion>
+    lateinit var basicRegions: List<BasicRegion>
+        private set
 
-    private lateinit var outsideBR: BasicRegion
+    private var outsideRegion: BasicRegion? = null
+
+    private val outsideBR: BasicRegion
+        get() = outsideRegion!!
 
     val shadedRegions = ArrayList<BasicRegion>()
 
-    lateinit var modifiedDual: MED
+    /**
+     * Arrangement of the curves so far, extended as curves are added.
+     */
+    private var arrangement: Arrangement? = null
+
+    /**
+     * Index of curves for segment tests, rebuilt when they change.
+     */
+    private var curveIndex: CurveIndex? = null
+
+    /**
+     * MED of the last step that needed one, null before that.
+     */
+    var modifiedDual: MED? = null
+        private set
 
     fun createDiagram(description: Description) {
 
@@ -69,6 +89,16 @@ class DiagramCreator(val settings: SettingsController) {
         val dSteps = DecomposerFactory.newDecomposer(settings.decompType).decompose(description)
         val rSteps = RecomposerFactory.newRecomposer().recompose(dSteps)
 
+        createDiagram(description, rSteps)
+    }
+
+    /**
+     * Embeds curves of already computed recomposition steps.
+     *
+     * @param description the abstract description being drawn
+     * @param rSteps recomposition steps of [description]
+     */
+    fun createDiagram(description: Description, rSteps: List<RecompositionStep>) {
         for (i in rSteps.indices) {
             val data = rSteps[i].addedCurveData
 
@@ -88,8 +118,10 @@ class DiagramCreator(val settings: SettingsController) {
             curveToContour[data.addedCurve] = curve
         }
 
-        if (settings.showMED()) {
-            createBasicRegions()
+        // regions of the final diagram
+        createBasicRegions()
+
+        if (settings.showMED) {
             createMED()
         }
 
@@ -97,7 +129,7 @@ class DiagramCreator(val settings: SettingsController) {
 
         val shaded = abstractRegions.minus(description.zones)
 
-        shadedRegions.addAll(shaded.map { BasicRegion(it, curveToContour) })
+        shadedRegions.addAll(shaded.map { BasicRegion(it, curveToContour, settings, arrangement!!.getCurves(it)) })
     }
 
     /**
@@ -119,7 +151,7 @@ class DiagramCreator(val settings: SettingsController) {
 
             // we don't have a map between abstract OUTSIDE and br OUTSIDE, hence ?:
             // also, we don't add .plus(outsideBR) because there're other regions that bound
-            val piercingData = PiercingData(4, data.splitZones.map { abRegionToBasicRegion[it] ?: outsideBR }, basicRegions)
+            val piercingData = PiercingData(4, data.splitZones.map { abRegionToBasicRegion[it] ?: outsideBR }, basicRegions, arrangement)
             if (piercingData.isPiercing()) {
 
                 curve = if (numCurvesSoFar() == 2) {
@@ -134,7 +166,7 @@ class DiagramCreator(val settings: SettingsController) {
         } else if (data.isMaybeSinglePiercing()) {
 
             // we don't have a map between abstract OUTSIDE and br OUTSIDE, hence ?:
-            val piercingData = PiercingData(2, data.splitZones.map { abRegionToBasicRegion[it] ?: outsideBR }, basicRegions.plus(outsideBR))
+            val piercingData = PiercingData(2, data.splitZones.map { abRegionToBasicRegion[it] ?: outsideBR }, basicRegions.plus(outsideBR), arrangement)
             if (piercingData.isPiercing()) {
 
                 curve = if (numCurvesSoFar() == 1) {
@@ -159,7 +191,7 @@ class DiagramCreator(val settings: SettingsController) {
             val center = br.center
 
             // minus signed distance because the point lies inside the polygon
-            val maxRadius = -br.getPolygonShape().boundary().signedDistance(center.x, center.y)
+            val maxRadius = -br.getBoundary().signedDistance(center.x, center.y)
 
             curve = CircleCurve(data.addedCurve, center.x, center.y, maxRadius / 2)
 
@@ -167,11 +199,9 @@ class DiagramCreator(val settings: SettingsController) {
         }
 
         if (curve == null) {
-            createMED()
+            val cycle = createMED().computeCycle(data.splitZones) ?: throw RuntimeException("Bug: Failed to find cycle")
 
-            val cycle = modifiedDual.computeCycle(data.splitZones) ?: throw RuntimeException("Bug: Failed to find cycle")
-
-            curve = PathCurve(data.addedCurve, cycle.path)
+            curve = PathCurve(data.addedCurve, cycle.path, settings.flatteningTolerance)
 
             if (cycle.lengthUnique() == 2) {
                 curve = embedSinglePiercing(data.addedCurve, cycle.nodesUnique().map { it.zone })
@@ -182,10 +212,10 @@ class DiagramCreator(val settings: SettingsController) {
                 curve = embedDoublePiercing(data.addedCurve, cycle.nodesUnique().map { it.zone })
             }
 
-            if (settings.useSmooth() && curve !is CircleCurve) {
+            if (settings.useSmooth && curve !is CircleCurve) {
                 val smoothedPath = smooth(cycle)
 
-                curve = PathCurve(data.addedCurve, smoothedPath)
+                curve = PathCurve(data.addedCurve, smoothedPath, settings.flatteningTolerance)
             }
 
             // we might've used more zones to get a cycle, so we make sure we capture all of the used ones
@@ -197,7 +227,7 @@ class DiagramCreator(val settings: SettingsController) {
     }
 
     private fun embedSinglePiercing(abstractCurve: AbstractCurve, regions: List<BasicRegion>): Curve {
-        val piercingData = PiercingData(2, regions, basicRegions.plus(outsideBR))
+        val piercingData = PiercingData(2, regions, basicRegions.plus(outsideBR), arrangement)
 
         if (!piercingData.isPiercing()) {
             throw RuntimeException("Bug: not 1-piercing")
@@ -207,7 +237,7 @@ class DiagramCreator(val settings: SettingsController) {
     }
 
     private fun embedDoublePiercing(abstractCurve: AbstractCurve, regions: List<BasicRegion>): Curve {
-        val piercingData = PiercingData(4, regions, basicRegions)
+        val piercingData = PiercingData(4, regions, basicRegions, arrangement)
 
         if (!piercingData.isPiercing()) {
             throw RuntimeException("Bug: not 2-piercing")
@@ -285,27 +315,60 @@ class DiagramCreator(val settings: SettingsController) {
         return newPath
     }
 
+    /**
+     * Regions that curves added since the last call do not touch keep their geometry,
+     * only touched regions and new (split) regions are computed, each from the curves on its boundary.
+     */
     private fun createBasicRegions() {
+        val curves = curveToContour.values.toList()
+        val arrangement = arrangementOf(curves)
+
         basicRegions = abstractRegions.map {
-            val br = BasicRegion(it, curveToContour)
+            val br = updateBasicRegion(abRegionToBasicRegion[it], it, curves, arrangement)
             abRegionToBasicRegion[it] = br
             return@map br
         }
 
-        outsideBR = BasicRegion(AbstractBasicRegion.OUTSIDE, curveToContour)
+        outsideRegion = updateBasicRegion(outsideRegion, AbstractBasicRegion.OUTSIDE, curves, arrangement)
+    }
+
+    /**
+     * @param previous the region in the last call or null if it is new
+     * @param curves all curves so far, curves are only ever appended
+     */
+    private fun updateBasicRegion(previous: BasicRegion?, abRegion: AbstractBasicRegion, curves: List<Curve>,
+                                  arrangement: Arrangement): BasicRegion {
+        if (previous == null)
+            return BasicRegion(abRegion, curveToContour, settings, arrangement.getCurves(abRegion))
+
+        return previous.withExcluded(curves.drop(previous.containingCurves.size + previous.excludingCurves.size),
+                arrangement.getCurves(abRegion))
+    }
+
+    /**
+     * @return arrangement of [curves], extended with curves added since the last call
+     */
+    private fun arrangementOf(curves: List<Curve>): Arrangement {
+        val arrangement = this.arrangement?.takeIf { it.isPrefixOf(curves) } ?: Arrangement(settings.fixedPointKernel).also { this.arrangement = it }
+
+        Profiler.start("Updating arrangement")
+        curves.drop(arrangement.curves.size).forEach { arrangement.insert(it) }
+        Profiler.end("Updating arrangement")
+
+        return arrangement
     }
 
     private fun numCurvesSoFar() = curveToContour.size
 
     /**
-     * Needs to be generated every time because curves change basic regions.
-     *
-     * TODO: we could potentially only compute br that have been changed by the curve
+     * Needs to be updated every time because curves change basic regions,
+     * parts of the last MED that new curves do not touch are reused.
      */
-    private fun createMED() {
+    private fun createMED(): MED {
         log.trace("Creating MED")
 
-        modifiedDual = MED(basicRegions, curveToContour)
+        val med = MED(basicRegions, outsideBR, curveToContour, settings, modifiedDual, arrangement)
+        modifiedDual = med
 
 //        if (settings.globalMap["astar"] != null) {
 //            println("Printing points")
@@ -323,19 +386,22 @@ class DiagramCreator(val settings: SettingsController) {
 //                i++
 //            }
 //        }
+
+        return med
     }
 
     /**
-     * Does curve segment [q] only pass through [actual] curve.
+     * @return index over [curves], reused while they stay the same
      */
-    fun isOK(q: Shape, actual: AbstractCurve, curves: List<Curve>): Boolean {
-        val list = curves.filter {
-            val s = it.computeShape()
-            s.fill = null
-            s.stroke = Color.BROWN
+    private fun indexOf(curves: List<Curve>): CurveIndex {
+        return curveIndex?.takeIf { it.isFor(curves) } ?: CurveIndex(curves).also { curveIndex = it }
+    }
 
-            !Shape.intersect(s, q).getLayoutBounds().isEmpty()
-        }
+    /**
+     * Does curve segment [q] only pass through [actual] curve.
+     */
+    fun isOK(q: Path2D, actual: AbstractCurve, curves: List<Curve>): Boolean {
+        val list = indexOf(curves).crossedBy(q)
 
         if (list.size != 1)
             return false
@@ -346,15 +412,7 @@ class DiagramCreator(val settings: SettingsController) {
     /**
      * Does curve segment [q] intersect with any other curves.
      */
-    fun intersects(q: Shape, curves: List<Curve>): Boolean {
-        val list = curves.filter {
-            val s = it.computeShape()
-            s.fill = null
-            s.stroke = Color.BROWN
-
-            !Shape.intersect(s, q).getLayoutBounds().isEmpty()
-        }
-
-        return list.isNotEmpty()
+    fun intersects(q: Path2D, curves: List<Curve>): Boolean {
+        return indexOf(curves).crossedBy(q).isNotEmpty()
     }
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package icurves.diagram.curve
 
 import icurves.description.AbstractCurve
 import icurves.diagram.Curve
+import icurves.geometry.Circles
+import icurves.geometry.Geometry
 import icurves.util.Converter
 import javafx.scene.shape.Circle
+import java.awt.geom.Ellipse2D
+import java.awt.geom.Line2D
 
 /**
  * A curve whose shape is a circle.
@@ -13,9 +17,41 @@ import javafx.scene.shape.Circle
 class CircleCurve(
         abstractCurve: AbstractCurve,
 
-        var centerX: Double,
-        var centerY: Double,
-        var radius: Double) : Curve(abstractCurve) {
+        centerX: Double,
+        centerY: Double,
+        radius: Double) : Curve(abstractCurve) {
+
+    companion object {
+        private const val OUTLINE_WIDTH = 1.0
+
+        /**
+         * Relative radial error of the 4 cubic Bezier arcs an ellipse's area is made of, rounded up.
+         */
+        private const val ARC_ERROR = 3e-4
+
+        /**
+         * Slack for stroking the arcs, plus the sliver threshold of [Geometry.intersects].
+         */
+        private const val ARC_TOLERANCE = 0.05
+    }
+
+    var centerX = centerX
+        set(value) {
+            field = value
+            invalidate()
+        }
+
+    var centerY = centerY
+        set(value) {
+            field = value
+            invalidate()
+        }
+
+    var radius = radius
+        set(value) {
+            field = value
+            invalidate()
+        }
 
     private val nudge = 0.1
 
@@ -50,6 +86,34 @@ class CircleCurve(
 
     override fun computePolygon() = Converter.circleToPolygon(this)
 
+    override fun computeOutline() = Geometry.stroke(toEllipse(), OUTLINE_WIDTH)
+
+    /**
+     * Decided analytically unless the segment comes within tolerance of the outline's edges,
+     * which the area, built from Bezier arcs, only approximates.
+     */
+    override fun isOutlineCrossedBy(segment: Line2D, width: Double): Boolean {
+        val tolerance = ARC_TOLERANCE + ARC_ERROR * getBigRadius()
+
+        return Circles.segmentMeetsRing(centerX, centerY, getBigRadius() - OUTLINE_WIDTH / 2, getBigRadius() + OUTLINE_WIDTH / 2,
+                segment.x1, segment.y1, segment.x2, segment.y2, width / 2, tolerance)
+                ?: super.isOutlineCrossedBy(segment, width)
+    }
+
+    /**
+     * The polygon is a regular 16-gon circumscribed about a circle of the integer radius,
+     * whose center is offset from [centerX], [centerY] by the integer rounding.
+     *
+     * @return center x, center y, inradius and circumradius of [getPolygon]
+     */
+    fun getPolygonCircles(): DoubleArray {
+        val r = radius.toInt()
+
+        return doubleArrayOf(getMinX() + r.toDouble(), getMinY() + r.toDouble(), r.toDouble(), r / Math.cos(Math.PI / 16))
+    }
+
+    private fun toEllipse() = Ellipse2D.Double(centerX - getBigRadius(), centerY - getBigRadius(), 2 * getBigRadius(), 2 * getBigRadius())
+
     override fun toDebugString(): String {
         return "$this($centerX, $centerY, r=$radius)"
     }
@@ -2,6 +2,10 @@ package icurves.diagram.curve
 
 import icurves.description.AbstractCurve
 import icurves.diagram.Curve
+import icurves.geometry.Beziers
+import icurves.geometry.Geometry
+import icurves.geometry.PackedPolygon
+import icurves.util.Converter
 import javafx.scene.paint.Color
 import javafx.scene.shape.*
 import math.geom2d.Point2D
@@ -13,8 +17,13 @@ import math.geom2d.polygon.SimplePolygon2D
  *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
-class PathCurve(abstractCurve: AbstractCurve,
-                val path: Path) : Curve(abstractCurve) {
+class PathCurve @JvmOverloads constructor(abstractCurve: AbstractCurve,
+                val path: Path,
+
+                /**
+                 * Max distance of the polygon from curved segments, 0 to sample each segment at fixed steps.
+                 */
+                private val flatteningTolerance: Double = 0.0) : Curve(abstractCurve) {
 
     init {
         path.elements.addAll(ClosePath())
@@ -34,7 +43,12 @@ class PathCurve(abstractCurve: AbstractCurve,
         return shape
     }
 
+    override fun computeOutline() = Geometry.stroke(drawnArea(Converter.toPath2D(path)), 2.0)
+
     override fun computePolygon(): Polygon2D {
+        if (flatteningTolerance > 0)
+            return flattenPolygon()
+
         val moveTo = path.elements[0] as MoveTo
 
         val polygonPoints = arrayListOf<Point2D>()
@@ -95,6 +109,41 @@ class PathCurve(abstractCurve: AbstractCurve,
         return SimplePolygon2D(polygonPoints)
     }
 
+    /**
+     * @return polygon within [flatteningTolerance] of the path, with points only where the path bends
+     */
+    private fun flattenPolygon(): Polygon2D {
+        val moveTo = path.elements[0] as MoveTo
+
+        val points = PackedPolygon.Builder(path.elements.size * 4)
+        points.add(moveTo.x, moveTo.y)
+
+        // drop moveTo and close()
+        path.elements.drop(1).dropLast(1).forEach {
+            val x = points.x(points.size - 1)
+            val y = points.y(points.size - 1)
+
+            when (it) {
+                is QuadCurveTo -> Beziers.flattenQuad(x, y, it.controlX, it.controlY, it.x, it.y, flatteningTolerance, points)
+
+                is CubicCurveTo -> Beziers.flattenCubic(x, y, it.controlX1, it.controlY1, it.controlX2, it.controlY2, it.x, it.y,
+                        flatteningTolerance, points)
+
+                is LineTo -> points.add(it.x, it.y)
+
+                is ClosePath -> {
+                    // ignore
+                }
+
+                else -> {
+                    throw IllegalArgumentException("Unknown path element: $it")
+                }
+            }
+        }
+
+        return points.build().toPolygon2D()
+    }
+
     private fun getQuadValue(p1: Point2D, p2: Point2D, p3: Point2D, t: Double): Point2D {
         val x = (1 - t) * (1 - t) * p1.x() + 2 * (1 - t) * t * p2.x() + t * t * p3.x()
         val y = (1 - t) * (1 - t) * p1.y() + 2 * (1 - t) * t * p2.y() + t * t * p3.y()
@@ -2,6 +2,7 @@ package icurves.diagram.curve
 
 import icurves.description.AbstractCurve
 import icurves.diagram.Curve
+import icurves.geometry.Geometry
 import icurves.util.Converter
 import javafx.geometry.Point2D
 import javafx.scene.paint.Color
@@ -41,6 +42,8 @@ class PolygonCurve(
         return shape
     }
 
+    override fun computeOutline() = Geometry.stroke(drawnArea(Converter.toPath2D(polygonFX)), 2.0)
+
     override fun computePolygon() = Converter.toPolygon2D(polygonFX)
 
     override fun toDebugString(): String {
@@ -0,0 +1,103 @@
+package icurves.geometry
+
+/**
+ * Flattens Bezier segments into polylines whose distance from the curve is within a tolerance.
+ * A segment is cut into n equal steps of t, with n from the bound on the curve's second derivative,
+ * so flat and short segments get few points and tight bends get many.
+ * Points are then evaluated by forward differencing, i.e. additions only.
+ */
+object Beziers {
+
+    /**
+     * Upper bound on the number of steps per segment, for degenerate tolerances.
+     */
+    private const val MAX_STEPS = 1000
+
+    /**
+     * Adds points of the quadratic segment from (x0, y0), which is not added, to (x2, y2) with control (x1, y1).
+     */
+    @JvmStatic fun flattenQuad(x0: Double, y0: Double, x1: Double, y1: Double, x2: Double, y2: Double,
+                               tolerance: Double, points: PackedPolygon.Builder) {
+
+        // P(t) = a t^2 + b t + x0
+        val ax = x0 - 2 * x1 + x2
+        val ay = y0 - 2 * y1 + y2
+        val bx = 2 * (x1 - x0)
+        val by = 2 * (y1 - y0)
+
+        // |P''| = 2 |a|, chord error <= |P''| / 8 * h^2
+        val n = steps(Math.hypot(ax, ay) / 4, tolerance)
+        val h = 1.0 / n
+
+        var x = x0
+        var y = y0
+        var dx = ax * h * h + bx * h
+        var dy = ay * h * h + by * h
+        val ddx = 2 * ax * h * h
+        val ddy = 2 * ay * h * h
+
+        for (i in 1 until n) {
+            x += dx
+            y += dy
+            dx += ddx
+            dy += ddy
+
+            points.add(x, y)
+        }
+
+        // exact end, not accumulated
+        points.add(x2, y2)
+    }
+
+    /**
+     * Adds points of the cubic segment from (x0, y0), which is not added, to (x3, y3) with controls (x1, y1) and (x2, y2).
+     */
+    @JvmStatic fun flattenCubic(x0: Double, y0: Double, x1: Double, y1: Double, x2: Double, y2: Double, x3: Double, y3: Double,
+                                tolerance: Double, points: PackedPolygon.Builder) {
+
+        // P(t) = a t^3 + b t^2 + c t + x0
+        val ax = -x0 + 3 * x1 - 3 * x2 + x3
+        val ay = -y0 + 3 * y1 - 3 * y2 + y3
+        val bx = 3 * x0 - 6 * x1 + 3 * x2
+        val by = 3 * y0 - 6 * y1 + 3 * y2
+        val cx = 3 * (x1 - x0)
+        val cy = 3 * (y1 - y0)
+
+        // |P''| <= 6 max of the control polygon's second differences, chord error <= |P''| / 8 * h^2
+        val secondDifference = Math.max(Math.hypot(x0 - 2 * x1 + x2, y0 - 2 * y1 + y2), Math.hypot(x1 - 2 * x2 + x3, y1 - 2 * y2 + y3))
+        val n = steps(secondDifference * 3 / 4, tolerance)
+        val h = 1.0 / n
+
+        var x = x0
+        var y = y0
+        var dx = ax * h * h * h + bx * h * h + cx * h
+        var dy = ay * h * h * h + by * h * h + cy * h
+        var ddx = 6 * ax * h * h * h + 2 * bx * h * h
+        var ddy = 6 * ay * h * h * h + 2 * by * h * h
+        val dddx = 6 * ax * h * h * h
+        val dddy = 6 * ay * h * h * h
+
+        for (i in 1 until n) {
+            x += dx
+            y += dy
+            dx += ddx
+            dy += ddy
+            ddx += dddx
+            ddy += dddy
+
+            points.add(x, y)
+        }
+
+        points.add(x3, y3)
+    }
+
+    /**
+     * @param singleStepError bound on the chord error of a single step, it falls with the square of the number of steps
+     * @return number of steps so that the chord error is within [tolerance]
+     */
+    private fun steps(singleStepError: Double, tolerance: Double): Int {
+        val n = Math.ceil(Math.sqrt(singleStepError / tolerance))
+
+        return if (n.isNaN() || n < 1) 1 else Math.min(n, MAX_STEPS.toDouble()).toInt()
+    }
+}
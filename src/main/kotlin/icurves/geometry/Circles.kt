@@ -0,0 +1,64 @@
+package icurves.geometry
+
+import java.awt.geom.Line2D
+
+/**
+ * Analytic predicates on circles, given by center (cx, cy) and radius,
+ * so tests that involve a circle need no area or polygon operations.
+ */
+object Circles {
+
+    /**
+     * @return distance of (x, y) to the circle, negative if inside
+     */
+    @JvmStatic fun signedDistance(cx: Double, cy: Double, radius: Double, x: Double, y: Double): Double {
+        return Math.hypot(x - cx, y - cy) - radius
+    }
+
+    @JvmStatic fun contains(cx: Double, cy: Double, radius: Double, x: Double, y: Double): Boolean {
+        return signedDistance(cx, cy, radius, x, y) < 0
+    }
+
+    /**
+     * @return distance of the segment's closest point to the center
+     */
+    @JvmStatic fun minDistance(cx: Double, cy: Double, x1: Double, y1: Double, x2: Double, y2: Double): Double {
+        return Math.sqrt(Line2D.ptSegDistSq(x1, y1, x2, y2, cx, cy))
+    }
+
+    /**
+     * @return distance of the segment's farthest point, one of its ends, to the center
+     */
+    @JvmStatic fun maxDistance(cx: Double, cy: Double, x1: Double, y1: Double, x2: Double, y2: Double): Double {
+        return Math.max(Math.hypot(x1 - cx, y1 - cy), Math.hypot(x2 - cx, y2 - cy))
+    }
+
+    /**
+     * Does the segment, stroked with [halfWidth] and square caps, overlap the ring between [innerRadius] and [outerRadius].
+     * The segment's distances to the center span [minDistance, maxDistance],
+     * the stroke adds at most halfWidth * sqrt(2) either way.
+     *
+     * @return the answer if it holds with [tolerance] to spare, else null
+     */
+    @JvmStatic fun segmentMeetsRing(cx: Double, cy: Double, innerRadius: Double, outerRadius: Double,
+                                    x1: Double, y1: Double, x2: Double, y2: Double,
+                                    halfWidth: Double, tolerance: Double): Boolean? {
+        val min = minDistance(cx, cy, x1, y1, x2, y2)
+        val max = maxDistance(cx, cy, x1, y1, x2, y2)
+        val reach = halfWidth * Math.sqrt(2.0)
+
+        // the segment runs from inside to outside, so it crosses the ring
+        if (min < innerRadius - tolerance && max > outerRadius + tolerance)
+            return true
+
+        // the segment itself passes through the ring, clear of its edges
+        if (outerRadius - innerRadius > 2 * tolerance && min < outerRadius - tolerance && max > innerRadius + tolerance)
+            return true
+
+        // even the stroke stays outside or inside the ring
+        if (min - reach > outerRadius + tolerance || max + reach < innerRadius - tolerance)
+            return false
+
+        return null
+    }
+}
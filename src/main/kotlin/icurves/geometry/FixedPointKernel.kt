@@ -0,0 +1,109 @@
+package icurves.geometry
+
+/**
+ * Geometry on integer coordinates, in units of [grid].
+ * Coordinates are snapped by rounding to the nearest grid point,
+ * after which orientation and intersection predicates are exact in long arithmetic,
+ * so no tolerances are needed and equal points are equal.
+ * Constructed points, i.e. crossings, are rounded to the grid again.
+ */
+class FixedPointKernel(
+
+        /**
+         * Grid spacing in pixels.
+         */
+        val grid: Double) {
+
+    companion object {
+
+        /**
+         * Largest coordinate in units, so that differences and their cross products fit in a long.
+         */
+        const val MAX_UNITS = 1L shl 29
+    }
+
+    init {
+        if (grid <= 0)
+            throw IllegalArgumentException("Grid must be positive: $grid")
+    }
+
+    /**
+     * @return [value] in units of the grid, rounded
+     */
+    fun snap(value: Double): Long {
+        val units = Math.round(value / grid)
+
+        if (units > MAX_UNITS || units < -MAX_UNITS)
+            throw IllegalArgumentException("Coordinate out of range: $value")
+
+        return units
+    }
+
+    /**
+     * @return value of [units], exact for any snapped coordinate
+     */
+    fun toDouble(units: Long) = units * grid
+
+    /**
+     * @return cross product of (x2 - x1, y2 - y1) and (x3 - x1, y3 - y1), positive if (x3, y3) is to the left
+     */
+    fun cross(x1: Long, y1: Long, x2: Long, y2: Long, x3: Long, y3: Long): Long {
+        return (x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1)
+    }
+
+    /**
+     * @return 1 if (x3, y3) is to the left of the line through (x1, y1) and (x2, y2), -1 if right, 0 if on it
+     */
+    fun orientation(x1: Long, y1: Long, x2: Long, y2: Long, x3: Long, y3: Long): Int {
+        return java.lang.Long.signum(cross(x1, y1, x2, y2, x3, y3))
+    }
+
+    /**
+     * @return true if the segments cross at a point inside both
+     */
+    fun crosses(x1: Long, y1: Long, x2: Long, y2: Long, x3: Long, y3: Long, x4: Long, y4: Long): Boolean {
+        val o1 = orientation(x3, y3, x4, y4, x1, y1)
+        val o2 = orientation(x3, y3, x4, y4, x2, y2)
+        val o3 = orientation(x1, y1, x2, y2, x3, y3)
+        val o4 = orientation(x1, y1, x2, y2, x4, y4)
+
+        return o1 * o2 < 0 && o3 * o4 < 0
+    }
+
+    /**
+     * @return true if the closed segments have any point in common, including touching and overlapping ones
+     */
+    fun intersects(x1: Long, y1: Long, x2: Long, y2: Long, x3: Long, y3: Long, x4: Long, y4: Long): Boolean {
+        val o1 = orientation(x3, y3, x4, y4, x1, y1)
+        val o2 = orientation(x3, y3, x4, y4, x2, y2)
+        val o3 = orientation(x1, y1, x2, y2, x3, y3)
+        val o4 = orientation(x1, y1, x2, y2, x4, y4)
+
+        if (o1 * o2 < 0 && o3 * o4 < 0)
+            return true
+
+        return o1 == 0 && isWithinBox(x3, y3, x4, y4, x1, y1)
+                || o2 == 0 && isWithinBox(x3, y3, x4, y4, x2, y2)
+                || o3 == 0 && isWithinBox(x1, y1, x2, y2, x3, y3)
+                || o4 == 0 && isWithinBox(x1, y1, x2, y2, x4, y4)
+    }
+
+    /**
+     * @return true if (x, y) is within the bounding box of the segment, i.e. on it if collinear
+     */
+    private fun isWithinBox(x1: Long, y1: Long, x2: Long, y2: Long, x: Long, y: Long): Boolean {
+        return Math.min(x1, x2) <= x && x <= Math.max(x1, x2) && Math.min(y1, y2) <= y && y <= Math.max(y1, y2)
+    }
+
+    /**
+     * The segments must cross, see [crosses].
+     *
+     * @return parameter of the crossing along the first segment, in (0, 1)
+     */
+    fun crossingParameter(x1: Long, y1: Long, x2: Long, y2: Long, x3: Long, y3: Long, x4: Long, y4: Long): Double {
+        val d1 = cross(x3, y3, x4, y4, x1, y1)
+        val d2 = cross(x3, y3, x4, y4, x2, y2)
+
+        return d1.toDouble() / (d1 - d2).toDouble()
+    }
+}
@@ -0,0 +1,197 @@
+package icurves.geometry
+
+import java.awt.BasicStroke
+import java.awt.Shape
+import java.awt.geom.Area
+import java.awt.geom.Line2D
+import java.awt.geom.PathIterator
+
+/**
+ * Geometry backend for topology tests.
+ * Works on java.awt.geom areas and paths, so unlike JavaFX shapes it creates no scene graph nodes
+ * and is safe on any thread. An area is still a list of segment objects, so area operations are not cheap.
+ * Proximity of polygon boundaries is tested on flat arrays of their segments.
+ *
+ * As with JavaFX Shape.intersect / Shape.subtract, the area of a drawn shape is its fill plus its stroke.
+ * Strokes use the JavaFX defaults: centered, square caps, miter joins with limit 10.
+ */
+object Geometry {
+
+    /**
+     * Overlaps thinner than this are treated as empty.
+     * JavaFX computes areas in float precision, which loses such slivers, e.g. between coincident curves.
+     */
+    private const val EPSILON = 1e-3
+
+    /**
+     * @return area covered by the stroke of [shape] with given [width]
+     */
+    @JvmStatic fun stroke(shape: Shape, width: Double): Area {
+        return Area(BasicStroke(width.toFloat()).createStrokedShape(shape))
+    }
+
+    /**
+     * @return area of [shape] filled and stroked with given [strokeWidth]
+     */
+    @JvmStatic fun fillAndStroke(shape: Shape, strokeWidth: Double): Area {
+        val area = Area(shape)
+        area.add(stroke(shape, strokeWidth))
+        return area
+    }
+
+    /**
+     * @return true if the areas overlap, touching boundaries and slivers do not count
+     */
+    @JvmStatic fun intersects(area1: Area, area2: Area): Boolean {
+        val area = intersection(area1, area2) ?: return false
+
+        // the average width is at most the bounds' width and height, so thin bounds are enough to rule it out
+        val bounds = area.bounds2D
+        if (bounds.width <= EPSILON || bounds.height <= EPSILON)
+            return false
+
+        return averageWidth(area) > EPSILON
+    }
+
+    /**
+     * Twice the size of [area] over its perimeter, the width of a long thin strip in any direction.
+     * The size is exact for line and Bezier segments, by Green's theorem,
+     * the length of a Bezier segment is estimated as the mean of its chord and its control polygon.
+     */
+    private fun averageWidth(area: Area): Double {
+        val coords = DoubleArray(6)
+        var startX = 0.0
+        var startY = 0.0
+        var x = 0.0
+        var y = 0.0
+
+        // twice the signed size
+        var size2 = 0.0
+        var perimeter = 0.0
+
+        val it = area.getPathIterator(null)
+
+        while (!it.isDone) {
+            when (it.currentSegment(coords)) {
+                PathIterator.SEG_MOVETO -> {
+                    startX = coords[0]
+                    startY = coords[1]
+                    x = startX
+                    y = startY
+                }
+
+                PathIterator.SEG_LINETO -> {
+                    size2 += cross(x, y, coords[0], coords[1])
+                    perimeter += Math.hypot(coords[0] - x, coords[1] - y)
+                    x = coords[0]
+                    y = coords[1]
+                }
+
+                PathIterator.SEG_QUADTO -> {
+                    val x1 = coords[0]
+                    val y1 = coords[1]
+                    val x2 = coords[2]
+                    val y2 = coords[3]
+
+                    size2 += (2 * cross(x, y, x1, y1) + cross(x, y, x2, y2) + 2 * cross(x1, y1, x2, y2)) / 3
+                    perimeter += (Math.hypot(x2 - x, y2 - y) + Math.hypot(x1 - x, y1 - y) + Math.hypot(x2 - x1, y2 - y1)) / 2
+                    x = x2
+                    y = y2
+                }
+
+                PathIterator.SEG_CUBICTO -> {
+                    val x1 = coords[0]
+                    val y1 = coords[1]
+                    val x2 = coords[2]
+                    val y2 = coords[3]
+                    val x3 = coords[4]
+                    val y3 = coords[5]
+
+                    size2 += (6 * cross(x, y, x1, y1) + 3 * cross(x, y, x2, y2) + cross(x, y, x3, y3)
+                            + 3 * cross(x1, y1, x2, y2) + 3 * cross(x1, y1, x3, y3) + 6 * cross(x2, y2, x3, y3)) / 10
+                    perimeter += (Math.hypot(x3 - x, y3 - y)
+                            + Math.hypot(x1 - x, y1 - y) + Math.hypot(x2 - x1, y2 - y1) + Math.hypot(x3 - x2, y3 - y2)) / 2
+                    x = x3
+                    y = y3
+                }
+
+                PathIterator.SEG_CLOSE -> {
+                    size2 += cross(x, y, startX, startY)
+                    perimeter += Math.hypot(startX - x, startY - y)
+                    x = startX
+                    y = startY
+                }
+            }
+
+            it.next()
+        }
+
+        return if (perimeter == 0.0) 0.0 else Math.abs(size2) / perimeter
+    }
+
+    private fun cross(x1: Double, y1: Double, x2: Double, y2: Double) = x1 * y2 - x2 * y1
+
+    /**
+     * @return intersection of the areas or null if it is empty
+     */
+    private fun intersection(area1: Area, area2: Area): Area? {
+        if (!area1.bounds2D.intersects(area2.bounds2D))
+            return null
+
+        val area = Area(area1)
+        area.intersect(area2)
+        return if (area.isEmpty) null else area
+    }
+
+    /**
+     * Segments are given as x1, y1, x2, y2 quadruples.
+     *
+     * @return true if a segment of [segments1] is within [distance] of a segment of [segments2]
+     */
+    @JvmStatic fun isWithin(segments1: DoubleArray, segments2: DoubleArray, distance: Double): Boolean {
+        val distanceSq = distance * distance
+
+        var i = 0
+        while (i < segments1.size) {
+            val x1 = segments1[i]
+            val y1 = segments1[i + 1]
+            val x2 = segments1[i + 2]
+            val y2 = segments1[i + 3]
+
+            var j = 0
+            while (j < segments2.size) {
+                val x3 = segments2[j]
+                val y3 = segments2[j + 1]
+                val x4 = segments2[j + 2]
+                val y4 = segments2[j + 3]
+
+                // bounding boxes further apart than distance
+                val apart = Math.min(x3, x4) - Math.max(x1, x2) > distance || Math.min(x1, x2) - Math.max(x3, x4) > distance
+                        || Math.min(y3, y4) - Math.max(y1, y2) > distance || Math.min(y1, y2) - Math.max(y3, y4) > distance
+
+                if (!apart && segmentDistanceSq(x1, y1, x2, y2, x3, y3, x4, y4) < distanceSq)
+                    return true
+
+                j += 4
+            }
+
+            i += 4
+        }
+
+        return false
+    }
+
+    /**
+     * @return squared distance between segments (x1, y1)-(x2, y2) and (x3, y3)-(x4, y4)
+     */
+    @JvmStatic fun segmentDistanceSq(x1: Double, y1: Double, x2: Double, y2: Double,
+                                     x3: Double, y3: Double, x4: Double, y4: Double): Double {
+        if (Line2D.linesIntersect(x1, y1, x2, y2, x3, y3, x4, y4))
+            return 0.0
+
+        // otherwise the closest points include an end point
+        return Math.min(
+                Math.min(Line2D.ptSegDistSq(x1, y1, x2, y2, x3, y3), Line2D.ptSegDistSq(x1, y1, x2, y2, x4, y4)),
+                Math.min(Line2D.ptSegDistSq(x3, y3, x4, y4, x1, y1), Line2D.ptSegDistSq(x3, y3, x4, y4, x2, y2)))
+    }
+}
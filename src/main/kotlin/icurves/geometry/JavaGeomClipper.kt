@@ -0,0 +1,16 @@
+package icurves.geometry
+
+import math.geom2d.polygon.Polygon2D
+import math.geom2d.polygon.Polygons2D
+
+/**
+ * javaGeom's polygon operations, backed by the General Polygon Clipper.
+ */
+object JavaGeomClipper : PolygonClipper {
+
+    override fun intersection(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D = Polygons2D.intersection(polygon1, polygon2)
+
+    override fun difference(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D = Polygons2D.difference(polygon1, polygon2)
+
+    override fun union(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D = Polygons2D.union(polygon1, polygon2)
+}
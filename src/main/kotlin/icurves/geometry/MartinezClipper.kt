@@ -0,0 +1,901 @@
+package icurves.geometry
+
+import math.geom2d.Point2D
+import math.geom2d.polygon.LinearRing2D
+import math.geom2d.polygon.MultiPolygon2D
+import math.geom2d.polygon.Polygon2D
+import math.geom2d.polygon.SimplePolygon2D
+import java.util.*
+
+/**
+ * Polygon operations by the sweep line algorithm of Martinez, Rueda and Feito:
+ * "A simple algorithm for Boolean operations on polygons" (2013).
+ *
+ * Works on rings packed as x, y pairs, one DoubleArray per ring, without repeating the first point.
+ * Edges are split where they cross, each piece learns from the edge below it whether it has the other polygon
+ * on one side, and pieces in the result are joined into rings.
+ * Intersections and differences stop the sweep once no edge further right can be in the result.
+ *
+ * Results have counter-clockwise outer rings and clockwise holes, as with GPC a single ring is a [SimplePolygon2D].
+ * Unlike GPC, rings of zero area are dropped. Experimental, see [PolygonEngineType.MARTINEZ].
+ */
+object MartinezClipper : PolygonClipper {
+
+    /**
+     * Distance below which points are on a line, far below the pixel scale of diagrams.
+     */
+    private const val EPSILON = 1e-9
+
+    private enum class Operation { INTERSECTION, UNION, DIFFERENCE }
+
+    private enum class EdgeType { NORMAL, NON_CONTRIBUTING, SAME_TRANSITION, DIFFERENT_TRANSITION }
+
+    /**
+     * An end point of an edge, events of an edge are linked by [other].
+     * Edges are numbered by [edge] in the order they are created, so overlapping edges are ordered the same way in every run.
+     */
+    private class SweepEvent(val x: Double, val y: Double, var left: Boolean, val isSubject: Boolean, val contour: Int, var edge: Int) {
+
+        lateinit var other: SweepEvent
+
+        var type = EdgeType.NORMAL
+
+        /**
+         * The edge is a transition from outside to inside of its polygon when going up.
+         */
+        var inOut = false
+
+        /**
+         * The closest edge of the other polygon below is a transition from inside to outside, or there is none.
+         */
+        var otherInOut = false
+
+        var inResult = false
+
+        /**
+         * Index of the point of this event in sweep order, once swept.
+         */
+        var point = -1
+
+        val isVertical: Boolean
+            get() = x == other.x
+
+        /**
+         * @return true if (px, py) is below the line of this edge
+         */
+        fun isBelow(px: Double, py: Double): Boolean {
+            return if (left)
+                signedArea(x, y, other.x, other.y, px, py) > 0
+            else
+                signedArea(other.x, other.y, x, y, px, py) > 0
+        }
+    }
+
+    /**
+     * Events of the input edges are sorted once, events of split edges, which are few, are kept in a heap.
+     */
+    private class EventQueue {
+        val initial = ArrayList<SweepEvent>()
+        private var next = 0
+        private val split = PriorityQueue<SweepEvent>(16, EVENT_ORDER)
+
+        var numEdges = 0
+            private set
+
+        fun newEdge() = numEdges++
+
+        fun sort() = initial.sortWith(EVENT_ORDER)
+
+        fun add(event: SweepEvent) = split.add(event)
+
+        fun isNotEmpty() = next < initial.size || split.isNotEmpty()
+
+        fun poll(): SweepEvent {
+            val head = split.peek()
+
+            return if (next < initial.size && (head == null || compareEvents(initial[next], head) < 0))
+                initial[next++]
+            else
+                split.poll()
+        }
+    }
+
+    private val EVENT_ORDER = Comparator<SweepEvent> { e1, e2 -> compareEvents(e1, e2) }
+
+    override fun intersection(polygon1: Polygon2D, polygon2: Polygon2D) = toPolygon(intersection(ringsOf(polygon1), ringsOf(polygon2)))
+
+    override fun difference(polygon1: Polygon2D, polygon2: Polygon2D) = toPolygon(difference(ringsOf(polygon1), ringsOf(polygon2)))
+
+    override fun union(polygon1: Polygon2D, polygon2: Polygon2D) = toPolygon(union(ringsOf(polygon1), ringsOf(polygon2)))
+
+    fun intersection(subject: List<DoubleArray>, clipping: List<DoubleArray>) = compute(subject, clipping, Operation.INTERSECTION)
+
+    fun difference(subject: List<DoubleArray>, clipping: List<DoubleArray>) = compute(subject, clipping, Operation.DIFFERENCE)
+
+    fun union(subject: List<DoubleArray>, clipping: List<DoubleArray>) = compute(subject, clipping, Operation.UNION)
+
+    /**
+     * @return rings of the polygon packed as x, y pairs
+     */
+    @JvmStatic fun ringsOf(polygon: Polygon2D): List<DoubleArray> {
+        if (polygon is SimplePolygon2D)
+            return listOf(pack(polygon.vertices()))
+
+        return polygon.contours().map { pack(it.vertices()) }
+    }
+
+    private fun pack(points: Collection<Point2D>): DoubleArray {
+        val coordinates = DoubleArray(points.size * 2)
+        var i = 0
+
+        for (p in points) {
+            coordinates[i++] = p.x()
+            coordinates[i++] = p.y()
+        }
+
+        return coordinates
+    }
+
+    /**
+     * @return polygon of the packed rings, a simple polygon if there is one ring
+     */
+    @JvmStatic fun toPolygon(rings: List<DoubleArray>): Polygon2D {
+        if (rings.size == 1)
+            return SimplePolygon2D(xs(rings[0]), ys(rings[0]))
+
+        return MultiPolygon2D(rings.map { LinearRing2D(xs(it), ys(it)) })
+    }
+
+    private fun xs(ring: DoubleArray) = DoubleArray(ring.size / 2) { ring[it * 2] }
+
+    private fun ys(ring: DoubleArray) = DoubleArray(ring.size / 2) { ring[it * 2 + 1] }
+
+    private fun compute(subject: List<DoubleArray>, clipping: List<DoubleArray>, operation: Operation): List<DoubleArray> {
+        val subjectBox = bounds(subject)
+        val clippingBox = bounds(clipping)
+
+        // operands do not meet
+        if (subjectBox == null || clippingBox == null
+                || subjectBox[0] > clippingBox[2] || clippingBox[0] > subjectBox[2]
+                || subjectBox[1] > clippingBox[3] || clippingBox[1] > subjectBox[3]) {
+
+            return when (operation) {
+                Operation.INTERSECTION -> emptyList()
+                Operation.DIFFERENCE -> if (subjectBox == null) emptyList() else subject
+                Operation.UNION -> (if (subjectBox == null) emptyList() else subject) + (if (clippingBox == null) emptyList() else clipping)
+            }
+        }
+
+        val rings = snap(subject + clipping)
+        val queue = EventQueue()
+
+        rings.forEachIndexed { i, ring -> addRing(queue, ring, i < subject.size, i) }
+        queue.sort()
+
+        return connectEdges(subdivide(queue, subjectBox, clippingBox, operation))
+    }
+
+    /**
+     * @return minX, minY, maxX, maxY of the rings, null if there are no points
+     */
+    private fun bounds(rings: List<DoubleArray>): DoubleArray? {
+        if (rings.all { it.size < 6 })
+            return null
+
+        val box = doubleArrayOf(Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE)
+
+        for (ring in rings) {
+            var i = 0
+            while (i < ring.size) {
+                box[0] = Math.min(box[0], ring[i])
+                box[1] = Math.min(box[1], ring[i + 1])
+                box[2] = Math.max(box[2], ring[i])
+                box[3] = Math.max(box[3], ring[i + 1])
+                i += 2
+            }
+        }
+
+        return box
+    }
+
+    /**
+     * Operands usually come from other operations on the same curves, so their shared points may differ by rounding.
+     * Moves each point within [EPSILON] of a point before it in x order onto that point.
+     *
+     * @return the rings, copied if any point moved
+     */
+    private fun snap(rings: List<DoubleArray>): List<DoubleArray> {
+        val numPoints = rings.sumBy { it.size / 2 }
+        val xs = DoubleArray(numPoints)
+        val ys = DoubleArray(numPoints)
+
+        var k = 0
+        rings.forEach { ring ->
+            for (i in 0 until ring.size / 2) {
+                xs[k] = ring[i * 2]
+                ys[k] = ring[i * 2 + 1]
+                k++
+            }
+        }
+
+        // sort by x with the point index packed into the low bits, so the order is exact up to those bits
+        val indexBits = 32 - Integer.numberOfLeadingZeros(numPoints)
+        val indexMask = (1L shl indexBits) - 1
+        val keys = LongArray(numPoints) { (sortKey(xs[it]) and indexMask.inv()) or it.toLong() }
+        Arrays.sort(keys)
+
+        var moved = false
+
+        for (a in keys.indices) {
+            val p = (keys[a] and indexMask).toInt()
+            val minKey = sortKey(xs[p] - EPSILON) and indexMask.inv()
+
+            var b = a - 1
+            while (b >= 0 && keys[b] >= minKey) {
+                val q = (keys[b] and indexMask).toInt()
+
+                if (Math.abs(xs[p] - xs[q]) <= EPSILON && Math.abs(ys[p] - ys[q]) <= EPSILON) {
+                    if (xs[p] != xs[q] || ys[p] != ys[q]) {
+                        xs[p] = xs[q]
+                        ys[p] = ys[q]
+                        moved = true
+                    }
+
+                    break
+                }
+
+                b--
+            }
+        }
+
+        if (!moved)
+            return rings
+
+        k = 0
+        return rings.map { ring ->
+            val copy = DoubleArray(ring.size)
+
+            for (i in 0 until ring.size / 2) {
+                copy[i * 2] = xs[k]
+                copy[i * 2 + 1] = ys[k]
+                k++
+            }
+
+            copy
+        }
+    }
+
+    /**
+     * @return long that orders the same way as [value]
+     */
+    private fun sortKey(value: Double): Long {
+        val bits = java.lang.Double.doubleToLongBits(value)
+        return bits xor ((bits shr 63) and Long.MAX_VALUE)
+    }
+
+    private fun addRing(queue: EventQueue, ring: DoubleArray, isSubject: Boolean, contour: Int) {
+        val n = ring.size / 2
+        if (n < 3)
+            return
+
+        for (i in 0 until n) {
+            val j = (i + 1) % n
+
+            // repeated points
+            if (ring[i * 2] == ring[j * 2] && ring[i * 2 + 1] == ring[j * 2 + 1])
+                continue
+
+            val edge = queue.newEdge()
+            val e1 = SweepEvent(ring[i * 2], ring[i * 2 + 1], false, isSubject, contour, edge)
+            val e2 = SweepEvent(ring[j * 2], ring[j * 2 + 1], false, isSubject, contour, edge)
+
+            e1.other = e2
+            e2.other = e1
+
+            if (compareEvents(e1, e2) > 0)
+                e2.left = true
+            else
+                e1.left = true
+
+            queue.initial.add(e1)
+            queue.initial.add(e2)
+        }
+    }
+
+    /**
+     * Sweeps left to right, splitting edges where they cross and computing which pieces are in the result.
+     *
+     * @return processed events in sweep order
+     */
+    private fun subdivide(queue: EventQueue, subjectBox: DoubleArray, clippingBox: DoubleArray,
+                          operation: Operation): List<SweepEvent> {
+
+        // edges that cross the sweep line, bottom to top, there are only a few so a list does
+        val status = ArrayList<SweepEvent>()
+        val sorted = ArrayList<SweepEvent>()
+
+        val rightBound = Math.min(subjectBox[2], clippingBox[2])
+
+        while (queue.isNotEmpty()) {
+            val event = queue.poll()
+            sorted.add(event)
+
+            // nothing further right can be in the result
+            if (operation == Operation.INTERSECTION && event.x > rightBound || operation == Operation.DIFFERENCE && event.x > subjectBox[2])
+                break
+
+            if (event.left) {
+                val i = insertionIndex(status, event)
+                status.add(i, event)
+
+                val prev = if (i > 0) status[i - 1] else null
+                val next = if (i + 1 < status.size) status[i + 1] else null
+
+                computeFields(event, prev, operation)
+
+                if (next != null && possibleIntersection(event, next, queue) == 2) {
+                    computeFields(event, prev, operation)
+                    computeFields(next, event, operation)
+                }
+
+                if (prev != null && possibleIntersection(prev, event, queue) == 2) {
+                    computeFields(prev, if (i > 1) status[i - 2] else null, operation)
+                    computeFields(event, prev, operation)
+                }
+            } else {
+                val i = status.indexOfFirst { it === event.other }
+
+                if (i >= 0) {
+                    val prev = if (i > 0) status[i - 1] else null
+                    val next = if (i + 1 < status.size) status[i + 1] else null
+
+                    status.removeAt(i)
+
+                    if (prev != null && next != null)
+                        possibleIntersection(prev, next, queue)
+                }
+            }
+        }
+
+        return sorted
+    }
+
+    private fun insertionIndex(status: List<SweepEvent>, event: SweepEvent): Int {
+        var low = 0
+        var high = status.size
+
+        while (low < high) {
+            val mid = (low + high) ushr 1
+
+            if (compareSegments(status[mid], event) < 0)
+                low = mid + 1
+            else
+                high = mid
+        }
+
+        return low
+    }
+
+    /**
+     * Sets in / out flags of the edge of [event] from the closest edge [prev] below it.
+     */
+    private fun computeFields(event: SweepEvent, prev: SweepEvent?, operation: Operation) {
+        if (prev == null) {
+            event.inOut = false
+            event.otherInOut = true
+        } else if (event.isSubject == prev.isSubject) {
+            event.inOut = !prev.inOut
+            event.otherInOut = prev.otherInOut
+        } else {
+            event.inOut = !prev.otherInOut
+            event.otherInOut = if (prev.isVertical) !prev.inOut else prev.inOut
+        }
+
+        event.inResult = isInResult(event, operation)
+    }
+
+    private fun isInResult(event: SweepEvent, operation: Operation): Boolean {
+        return when (event.type) {
+            EdgeType.NORMAL -> when (operation) {
+                Operation.INTERSECTION -> !event.otherInOut
+                Operation.UNION -> event.otherInOut
+                Operation.DIFFERENCE -> event.isSubject == event.otherInOut
+            }
+
+            EdgeType.SAME_TRANSITION -> operation != Operation.DIFFERENCE
+            EdgeType.DIFFERENT_TRANSITION -> operation == Operation.DIFFERENCE
+            EdgeType.NON_CONTRIBUTING -> false
+        }
+    }
+
+    /**
+     * Splits the edges of [e1] and [e2] where they cross or overlap.
+     *
+     * @return 0 if they do not meet or only at an end, 1 if they cross, 2 if they overlap from a shared left end, else 3
+     */
+    private fun possibleIntersection(e1: SweepEvent, e2: SweepEvent, queue: EventQueue): Int {
+        val points = DoubleArray(4)
+        val n = intersect(e1.x, e1.y, e1.other.x, e1.other.y, e2.x, e2.y, e2.other.x, e2.other.y, points)
+
+        if (n == 0)
+            return 0
+
+        if (n == 1 && (equals(e1, e2) || equals(e1.other, e2.other)))
+            return 0
+
+        // overlapping edges of the same polygon
+        if (n == 2 && e1.isSubject == e2.isSubject)
+            return 0
+
+        if (n == 1) {
+            val x = points[0]
+            val y = points[1]
+
+            if (!isAt(e1, x, y) && !isAt(e1.other, x, y))
+                divideSegment(e1, x, y, queue)
+
+            if (!isAt(e2, x, y) && !isAt(e2.other, x, y))
+                divideSegment(e2, x, y, queue)
+
+            return 1
+        }
+
+        // overlap, ends of both edges in sweep order without coinciding ones
+        val events = ArrayList<SweepEvent>(4)
+        val leftCoincide = equals(e1, e2)
+        val rightCoincide = equals(e1.other, e2.other)
+
+        if (!leftCoincide) {
+            if (compareEvents(e1, e2) > 0) {
+                events.add(e2)
+                events.add(e1)
+            } else {
+                events.add(e1)
+                events.add(e2)
+            }
+        }
+
+        if (!rightCoincide) {
+            if (compareEvents(e1.other, e2.other) > 0) {
+                events.add(e2.other)
+                events.add(e1.other)
+            } else {
+                events.add(e1.other)
+                events.add(e2.other)
+            }
+        }
+
+        if (leftCoincide) {
+            // the shared piece counts once, for both polygons
+            e2.type = EdgeType.NON_CONTRIBUTING
+            e1.type = if (e2.inOut == e1.inOut) EdgeType.SAME_TRANSITION else EdgeType.DIFFERENT_TRANSITION
+
+            if (!rightCoincide)
+                divideSegment(events[1].other, events[0].x, events[0].y, queue)
+
+            return 2
+        }
+
+        if (rightCoincide) {
+            divideSegment(events[0], events[1].x, events[1].y, queue)
+            return 3
+        }
+
+        if (events[0] !== events[3].other) {
+            // neither edge contains the other
+            divideSegment(events[0], events[1].x, events[1].y, queue)
+            divideSegment(events[1], events[2].x, events[2].y, queue)
+            return 3
+        }
+
+        // one edge contains the other
+        divideSegment(events[0], events[1].x, events[1].y, queue)
+        divideSegment(events[3].other, events[2].x, events[2].y, queue)
+        return 3
+    }
+
+    /**
+     * Splits the edge of left event [event] at (x, y), queueing the events of the new ends.
+     */
+    private fun divideSegment(event: SweepEvent, x: Double, y: Double, queue: EventQueue) {
+        val right = SweepEvent(x, y, false, event.isSubject, event.contour, event.edge)
+        val left = SweepEvent(x, y, true, event.isSubject, event.contour, queue.newEdge())
+
+        right.other = event
+        left.other = event.other
+        left.other.edge = left.edge
+
+        // rounding put the split point past the old right end
+        if (compareEvents(left, event.other) > 0) {
+            event.other.left = true
+            left.left = false
+        }
+
+        event.other.other = left
+        event.other = right
+
+        queue.add(left)
+        queue.add(right)
+    }
+
+    /**
+     * Finds where segments (x1, y1)-(x2, y2) and (x3, y3)-(x4, y4) meet, writing the points to [points].
+     *
+     * @return 0 if they do not meet, 1 if they meet in a point, 2 if they overlap from the first point to the second
+     */
+    private fun intersect(x1: Double, y1: Double, x2: Double, y2: Double,
+                          x3: Double, y3: Double, x4: Double, y4: Double, points: DoubleArray): Int {
+        val vax = x2 - x1
+        val vay = y2 - y1
+        val vbx = x4 - x3
+        val vby = y4 - y3
+        val ex = x3 - x1
+        val ey = y3 - y1
+
+        val kross = vax * vby - vay * vbx
+
+        if (!isCollinear(x1, y1, x2, y2, x3, y3, x4, y4)) {
+            // parallel
+            if (kross == 0.0)
+                return 0
+
+            val s = (ex * vby - ey * vbx) / kross
+            if (s < 0 || s > 1)
+                return 0
+
+            val t = (ex * vay - ey * vax) / kross
+            if (t < 0 || t > 1)
+                return 0
+
+            val x = x1 + s * vax
+            val y = y1 + s * vay
+
+            // ends exactly, so they compare equal to the events and no splinters are split off
+            when {
+                isNear(x, y, x1, y1) -> setPoint(points, 0, x1, y1)
+                isNear(x, y, x2, y2) -> setPoint(points, 0, x2, y2)
+                isNear(x, y, x3, y3) -> setPoint(points, 0, x3, y3)
+                isNear(x, y, x4, y4) -> setPoint(points, 0, x4, y4)
+                else -> setPoint(points, 0, x, y)
+            }
+
+            return 1
+        }
+
+        val lengthSq = vax * vax + vay * vay
+        val sa = (vax * ex + vay * ey) / lengthSq
+        val sb = sa + (vax * vbx + vay * vby) / lengthSq
+        val min = Math.min(sa, sb)
+        val max = Math.max(sa, sb)
+
+        if (min > 1 || max < 0)
+            return 0
+
+        // touching at an end
+        if (min == 1.0) {
+            setPoint(points, 0, x2, y2)
+            return 1
+        }
+
+        if (max == 0.0) {
+            setPoint(points, 0, x1, y1)
+            return 1
+        }
+
+        // each end of the overlap is an end of one of the segments
+        if (min <= 0)
+            setPoint(points, 0, x1, y1)
+        else if (min == sa)
+            setPoint(points, 0, x3, y3)
+        else
+            setPoint(points, 0, x4, y4)
+
+        if (max >= 1)
+            setPoint(points, 2, x2, y2)
+        else if (max == sb)
+            setPoint(points, 2, x4, y4)
+        else
+            setPoint(points, 2, x3, y3)
+
+        return 2
+    }
+
+    /**
+     * Ends of edges split earlier are rounded, so edges on one line are taken to be within [EPSILON] of each other's line.
+     */
+    private fun isCollinear(x1: Double, y1: Double, x2: Double, y2: Double,
+                            x3: Double, y3: Double, x4: Double, y4: Double): Boolean {
+        val length1 = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1))
+        val length2 = Math.sqrt((x4 - x3) * (x4 - x3) + (y4 - y3) * (y4 - y3))
+
+        return Math.abs(signedArea(x1, y1, x2, y2, x3, y3)) <= EPSILON * length1
+                && Math.abs(signedArea(x1, y1, x2, y2, x4, y4)) <= EPSILON * length1
+                && Math.abs(signedArea(x3, y3, x4, y4, x1, y1)) <= EPSILON * length2
+                && Math.abs(signedArea(x3, y3, x4, y4, x2, y2)) <= EPSILON * length2
+    }
+
+    private fun isNear(x1: Double, y1: Double, x2: Double, y2: Double): Boolean {
+        return Math.abs(x1 - x2) <= EPSILON && Math.abs(y1 - y2) <= EPSILON
+    }
+
+    private fun setPoint(points: DoubleArray, i: Int, x: Double, y: Double) {
+        points[i] = x
+        points[i + 1] = y
+    }
+
+    /**
+     * Orders events left to right, then bottom to top.
+     * At the same point right ends come first, then edges lower down, then clipping edges.
+     */
+    private fun compareEvents(e1: SweepEvent, e2: SweepEvent): Int {
+        if (e1.x != e2.x)
+            return if (e1.x > e2.x) 1 else -1
+
+        if (e1.y != e2.y)
+            return if (e1.y > e2.y) 1 else -1
+
+        if (e1.left != e2.left)
+            return if (e1.left) 1 else -1
+
+        if (signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) != 0.0)
+            return if (!e1.isBelow(e2.other.x, e2.other.y)) 1 else -1
+
+        return if (!e1.isSubject && e2.isSubject) 1 else -1
+    }
+
+    /**
+     * Orders edges crossing the sweep line bottom to top.
+     */
+    private fun compareSegments(e1: SweepEvent, e2: SweepEvent): Int {
+        if (e1 === e2)
+            return 0
+
+        // not on one line
+        if (signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.x, e2.y) != 0.0
+                || signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) != 0.0) {
+
+            if (equals(e1, e2))
+                return if (e1.isBelow(e2.other.x, e2.other.y)) -1 else 1
+
+            if (e1.x == e2.x)
+                return if (e1.y < e2.y) -1 else 1
+
+            // the edge that starts later is compared against the other's line, by its right end if it starts on it
+            if (compareEvents(e1, e2) == 1)
+                return if (sideOf(e2, e1) > 0) 1 else -1
+
+            return if (sideOf(e1, e2) > 0) -1 else 1
+        }
+
+        if (e1.isSubject != e2.isSubject)
+            return if (e1.isSubject) -1 else 1
+
+        if (equals(e1, e2)) {
+            if (equals(e1.other, e2.other))
+                return Integer.compare(e1.edge, e2.edge)
+
+            return if (e1.contour > e2.contour) 1 else -1
+        }
+
+        return if (compareEvents(e1, e2) == 1) 1 else -1
+    }
+
+    /**
+     * @return distance of the left end of [e2], or its right end if that is within [EPSILON], from the line of [e1],
+     * positive if above
+     */
+    private fun sideOf(e1: SweepEvent, e2: SweepEvent): Double {
+        val length = Math.sqrt((e1.other.x - e1.x) * (e1.other.x - e1.x) + (e1.other.y - e1.y) * (e1.other.y - e1.y))
+        val distance = signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.x, e2.y) / length
+
+        if (Math.abs(distance) > EPSILON)
+            return distance
+
+        return signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) / length
+    }
+
+    /**
+     * Joins edges in the result into rings, turning as sharply as possible where several meet,
+     * then orients rings by how deep they are nested.
+     */
+    private fun connectEdges(sorted: List<SweepEvent>): List<DoubleArray> {
+        // events at one point are next to each other in sweep order, so points are numbered in one pass
+        val xs = DoubleArray(sorted.size)
+        val ys = DoubleArray(sorted.size)
+        var numPoints = 0
+
+        for (i in sorted.indices) {
+            val event = sorted[i]
+
+            if (i == 0 || event.x != sorted[i - 1].x || event.y != sorted[i - 1].y) {
+                xs[numPoints] = event.x
+                ys[numPoints] = event.y
+                numPoints++
+            }
+
+            event.point = numPoints - 1
+        }
+
+        val edges = sorted.filter { it.left && it.inResult && it.other.point >= 0 }
+        if (edges.isEmpty())
+            return emptyList()
+
+        // ends of edges at each point, end 2i is the left end of edge i and 2i + 1 its right end
+        fun pointOf(end: Int) = if (end % 2 == 0) edges[end / 2].point else edges[end / 2].other.point
+
+        val offsets = IntArray(numPoints + 1)
+        for (end in 0 until edges.size * 2) {
+            offsets[pointOf(end) + 1]++
+        }
+
+        for (p in 0 until numPoints) {
+            offsets[p + 1] += offsets[p]
+        }
+
+        val ends = IntArray(edges.size * 2)
+        val filled = offsets.copyOf(numPoints)
+        for (end in 0 until edges.size * 2) {
+            ends[filled[pointOf(end)]++] = end
+        }
+
+        val used = BooleanArray(edges.size)
+        val rings = arrayListOf<DoubleArray>()
+        var coordinates = DoubleArray(64)
+
+        for (start in edges.indices) {
+            if (used[start])
+                continue
+
+            used[start] = true
+
+            val first = pointOf(start * 2)
+            var from = first
+            var at = pointOf(start * 2 + 1)
+            var size = 0
+            var closed = true
+
+            coordinates[size++] = xs[first]
+            coordinates[size++] = ys[first]
+
+            while (at != first) {
+                if (size == coordinates.size)
+                    coordinates = coordinates.copyOf(size * 2)
+
+                coordinates[size++] = xs[at]
+                coordinates[size++] = ys[at]
+
+                val end = nextEnd(ends, offsets[at], offsets[at + 1], used, xs, ys, from, at, ::pointOf)
+
+                if (end < 0) {
+                    closed = false
+                    break
+                }
+
+                used[end / 2] = true
+                from = at
+                at = pointOf(end xor 1)
+            }
+
+            if (closed && size >= 6)
+                rings.add(coordinates.copyOf(size))
+        }
+
+        return orient(rings)
+    }
+
+    /**
+     * @return end among ends[from, to) of the unused edge at [at] with the smallest counter-clockwise turn
+     * from the way back to [from], -1 if none
+     */
+    private inline fun nextEnd(ends: IntArray, fromIndex: Int, toIndex: Int, used: BooleanArray, xs: DoubleArray, ys: DoubleArray,
+                               from: Int, at: Int, pointOf: (Int) -> Int): Int {
+        var best = -1
+        var numUnused = 0
+
+        for (i in fromIndex until toIndex) {
+            if (!used[ends[i] / 2]) {
+                best = ends[i]
+                numUnused++
+            }
+        }
+
+        // only where rings touch is there a choice
+        if (numUnused < 2)
+            return best
+
+        var bestAngle = Double.MAX_VALUE
+        val back = Math.atan2(ys[from] - ys[at], xs[from] - xs[at])
+
+        for (i in fromIndex until toIndex) {
+            val end = ends[i]
+            if (used[end / 2])
+                continue
+
+            val to = pointOf(end xor 1)
+
+            var angle = Math.atan2(ys[to] - ys[at], xs[to] - xs[at]) - back
+            if (angle <= 0)
+                angle += 2 * Math.PI
+
+            if (angle < bestAngle) {
+                bestAngle = angle
+                best = end
+            }
+        }
+
+        return best
+    }
+
+    /**
+     * Rings inside an even number of others are outer rings and made counter-clockwise, the rest are holes.
+     */
+    private fun orient(rings: List<DoubleArray>): List<DoubleArray> {
+        return rings.map { ring ->
+            // rings only meet at points, so the middle of an edge is inside a ring or outside
+            val x = (ring[0] + ring[2]) / 2
+            val y = (ring[1] + ring[3]) / 2
+
+            val depth = rings.count { it !== ring && contains(it, x, y) }
+
+            if ((area(ring) > 0) == (depth % 2 == 0)) ring else reverse(ring)
+        }
+    }
+
+    private fun area(ring: DoubleArray): Double {
+        val n = ring.size / 2
+        var area = 0.0
+
+        for (i in 0 until n) {
+            val j = (i + 1) % n
+            area += ring[i * 2] * ring[j * 2 + 1] - ring[j * 2] * ring[i * 2 + 1]
+        }
+
+        return area / 2
+    }
+
+    private fun reverse(ring: DoubleArray): DoubleArray {
+        val n = ring.size / 2
+        val reversed = DoubleArray(ring.size)
+
+        for (i in 0 until n) {
+            reversed[i * 2] = ring[(n - 1 - i) * 2]
+            reversed[i * 2 + 1] = ring[(n - 1 - i) * 2 + 1]
+        }
+
+        return reversed
+    }
+
+    /**
+     * @return true if (x, y) is inside the ring, by the even-odd rule
+     */
+    private fun contains(ring: DoubleArray, x: Double, y: Double): Boolean {
+        var inside = false
+        val n = ring.size / 2
+
+        var j = n - 1
+        for (i in 0 until n) {
+            val xi = ring[i * 2]
+            val yi = ring[i * 2 + 1]
+            val xj = ring[j * 2]
+            val yj = ring[j * 2 + 1]
+
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi)
+                inside = !inside
+
+            j = i
+        }
+
+        return inside
+    }
+
+    private fun equals(e1: SweepEvent, e2: SweepEvent) = e1.x == e2.x && e1.y == e2.y
+
+    private fun isAt(event: SweepEvent, x: Double, y: Double) = event.x == x && event.y == y
+
+    /**
+     * @return twice the signed area of triangle (x0, y0), (x1, y1), (x2, y2), positive if counter-clockwise
+     */
+    private fun signedArea(x0: Double, y0: Double, x1: Double, y1: Double, x2: Double, y2: Double): Double {
+        return (x0 - x2) * (y1 - y2) - (x1 - x2) * (y0 - y2)
+    }
+}
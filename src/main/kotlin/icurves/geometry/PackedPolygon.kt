@@ -0,0 +1,221 @@
+package icurves.geometry
+
+import javafx.scene.shape.Polyline
+import math.geom2d.polygon.LinearRing2D
+import math.geom2d.polygon.MultiPolygon2D
+import math.geom2d.polygon.Polygon2D
+import math.geom2d.polygon.SimplePolygon2D
+import java.util.*
+
+/**
+ * Polygon or polyline whose points are stored as all x followed by all y coordinates,
+ * with rings as consecutive ranges of points.
+ * Loops over it read primitives instead of point objects.
+ */
+class PackedPolygon private constructor(
+
+        /**
+         * x of all points, then y of all points.
+         */
+        private val coordinates: DoubleArray,
+
+        /**
+         * First point of each ring, followed by the number of points.
+         */
+        private val ringStarts: IntArray) {
+
+    companion object {
+
+        /**
+         * @return packed copy of [polygon]
+         */
+        @JvmStatic fun of(polygon: Polygon2D): PackedPolygon {
+            val builder = Builder(polygon.vertexNumber())
+
+            val rings = if (polygon is SimplePolygon2D) listOf(polygon.vertices()) else polygon.contours().map { it.vertices() }
+
+            for (ring in rings) {
+                builder.newRing()
+
+                for (p in ring) {
+                    builder.add(p.x(), p.y())
+                }
+            }
+
+            return builder.build()
+        }
+
+        /**
+         * @return packed copy of [polyline] as a single ring
+         */
+        @JvmStatic fun of(polyline: Polyline): PackedPolygon {
+            val points = polyline.points
+            val builder = Builder(points.size / 2)
+
+            var i = 0
+            while (i < points.size - 1) {
+                builder.add(points[i], points[i + 1])
+                i += 2
+            }
+
+            return builder.build()
+        }
+    }
+
+    val numPoints = ringStarts[ringStarts.size - 1]
+
+    val numRings = ringStarts.size - 1
+
+    // NaN until first asked for
+    private var minX = Double.NaN
+    private var minY = 0.0
+    private var maxX = 0.0
+    private var maxY = 0.0
+
+    fun x(point: Int) = coordinates[point]
+
+    fun y(point: Int) = coordinates[numPoints + point]
+
+    fun ringStart(ring: Int) = ringStarts[ring]
+
+    /**
+     * @return index after the last point of [ring]
+     */
+    fun ringEnd(ring: Int) = ringStarts[ring + 1]
+
+    fun getMinX(): Double {
+        computeBounds()
+        return minX
+    }
+
+    fun getMinY(): Double {
+        computeBounds()
+        return minY
+    }
+
+    fun getMaxX(): Double {
+        computeBounds()
+        return maxX
+    }
+
+    fun getMaxY(): Double {
+        computeBounds()
+        return maxY
+    }
+
+    private fun computeBounds() {
+        if (!minX.isNaN() || numPoints == 0)
+            return
+
+        var x0 = Double.POSITIVE_INFINITY
+        var y0 = Double.POSITIVE_INFINITY
+        var x1 = Double.NEGATIVE_INFINITY
+        var y1 = Double.NEGATIVE_INFINITY
+
+        for (i in 0 until numPoints) {
+            val x = x(i)
+            val y = y(i)
+
+            x0 = Math.min(x0, x)
+            y0 = Math.min(y0, y)
+            x1 = Math.max(x1, x)
+            y1 = Math.max(y1, y)
+        }
+
+        minY = y0
+        maxX = x1
+        maxY = y1
+        minX = x0
+    }
+
+    /**
+     * @return polygon of the rings, a simple polygon if there is one ring
+     */
+    fun toPolygon2D(): Polygon2D {
+        if (numRings == 1)
+            return SimplePolygon2D(xs(0), ys(0))
+
+        return MultiPolygon2D((0 until numRings).map { LinearRing2D(xs(it), ys(it)) })
+    }
+
+    private fun xs(ring: Int) = DoubleArray(ringEnd(ring) - ringStart(ring)) { x(ringStart(ring) + it) }
+
+    private fun ys(ring: Int) = DoubleArray(ringEnd(ring) - ringStart(ring)) { y(ringStart(ring) + it) }
+
+    /**
+     * @return polyline through all points
+     */
+    fun toPolyline(): Polyline {
+        val points = DoubleArray(numPoints * 2)
+
+        for (i in 0 until numPoints) {
+            points[i * 2] = x(i)
+            points[i * 2 + 1] = y(i)
+        }
+
+        return Polyline(*points)
+    }
+
+    /**
+     * Collects points without boxing them.
+     * Points added before the first [newRing] form the first ring.
+     */
+    class Builder @JvmOverloads constructor(capacity: Int = 16) {
+
+        private var xs = DoubleArray(Math.max(capacity, 1))
+        private var ys = DoubleArray(Math.max(capacity, 1))
+        private var ringStarts = IntArray(2)
+        private var numRings = 0
+
+        var size = 0
+            private set
+
+        fun x(point: Int) = xs[point]
+
+        fun y(point: Int) = ys[point]
+
+        fun add(x: Double, y: Double): Builder {
+            if (size == xs.size) {
+                xs = Arrays.copyOf(xs, size * 2)
+                ys = Arrays.copyOf(ys, size * 2)
+            }
+
+            if (numRings == 0)
+                newRing()
+
+            xs[size] = x
+            ys[size] = y
+            size++
+            return this
+        }
+
+        /**
+         * Starts a new ring, unless the current one is still empty.
+         */
+        fun newRing(): Builder {
+            if (numRings > 0 && ringStarts[numRings - 1] == size)
+                return this
+
+            if (numRings == ringStarts.size)
+                ringStarts = Arrays.copyOf(ringStarts, numRings * 2)
+
+            ringStarts[numRings++] = size
+            return this
+        }
+
+        /**
+         * @return packed copy of the points
+         */
+        fun build(): PackedPolygon {
+            val coordinates = Arrays.copyOf(xs, size * 2)
+            System.arraycopy(ys, 0, coordinates, size, size)
+
+            // an empty last ring only marks the end
+            val numStarts = if (numRings > 0 && ringStarts[numRings - 1] == size) numRings - 1 else numRings
+            val starts = Arrays.copyOf(ringStarts, numStarts + 1)
+            starts[numStarts] = size
+
+            return PackedPolygon(coordinates, starts)
+        }
+    }
+}
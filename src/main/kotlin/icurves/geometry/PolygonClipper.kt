@@ -0,0 +1,17 @@
+package icurves.geometry
+
+import math.geom2d.polygon.Polygon2D
+
+/**
+ * Boolean operations on polygons, possibly with several rings.
+ * Rings of an operand are combined by the even-odd rule, so holes need no particular orientation.
+ * Results are new polygons, operands are not modified.
+ */
+interface PolygonClipper {
+
+    fun intersection(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D
+
+    fun difference(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D
+
+    fun union(polygon1: Polygon2D, polygon2: Polygon2D): Polygon2D
+}
@@ -0,0 +1,22 @@
+package icurves.geometry
+
+/**
+ * Engine used for polygon operations on basic regions.
+ */
+enum class PolygonEngineType(
+
+        /**
+         * UI-friendly name.
+         */
+        val uiName: String,
+
+        val clipper: PolygonClipper) {
+
+    JAVAGEOM("javaGeom (General Polygon Clipper)", JavaGeomClipper),
+
+    /**
+     * Experimental. Covers the same areas as [JAVAGEOM] but drops rings of zero area,
+     * and layouts may differ enough that some fail, e.g. an edge of "Nested Piercing 1" cannot be routed.
+     */
+    MARTINEZ("Martinez-Rueda sweep line (experimental)", MartinezClipper)
+}
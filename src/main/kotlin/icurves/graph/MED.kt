@@ -1,13 +1,15 @@
 package icurves.graph
 
-import icurves.CurvesApp
 import icurves.algorithm.EdgeRouter
 import icurves.description.AbstractBasicRegion
 import icurves.description.AbstractCurve
+import icurves.diagram.Arrangement
 import icurves.diagram.BasicRegion
 import icurves.diagram.Curve
+import icurves.diagram.CurveIndex
+import icurves.geometry.PackedPolygon
 import icurves.graph.cycles.CycleFinder
-import icurves.guifx.SettingsController
+import icurves.layout.LayoutSettings
 import icurves.util.Converter
 import icurves.util.Profiler
 import javafx.geometry.Point2D
@@ -15,6 +17,7 @@ import javafx.scene.paint.Color
 import javafx.scene.shape.*
 import math.geom2d.polygon.SimplePolygon2D
 import org.apache.logging.log4j.LogManager
+import java.awt.geom.Line2D
 import java.util.*
 import java.util.stream.Collectors
 import java.util.stream.Stream
@@ -22,52 +25,91 @@ import java.util.stream.Stream
 /**
  * Modified Euler dual.
  *
+ * Can be built from the MED of an earlier embedding step:
+ * nodes of regions that no curve added since touches and edges between them are taken over,
+ * only edges incident to changed regions are computed, and the ring is only refitted if the diagram grew.
+ *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
 @Suppress("UNCHECKED_CAST")
-class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<AbstractCurve, Curve>) {
+class MED @JvmOverloads constructor(
+        val allBasicRegions: List<BasicRegion>,
+        private val outside: BasicRegion,
+        private val allContours: Map<AbstractCurve, Curve>,
+        private val settings: LayoutSettings,
+        previous: MED? = null,
+
+        /**
+         * Arrangement of the curves, regions whose faces share an edge are adjacent without testing their boundaries.
+         */
+        private val arrangement: Arrangement? = null) {
 
     private val log = LogManager.getLogger(javaClass)
 
     lateinit var nodes: MutableList<EulerDualNode>
     lateinit var edges: MutableList<EulerDualEdge>
 
-    private val settings: SettingsController
+    private val numCurves = allContours.size
 
-    init {
-        settings = CurvesApp.getInstance().settings
+    private val curveIndex by lazy { CurveIndex(allContours.values.toList()) }
 
-        computeEGD()
+    /**
+     * MED ring center, radius and the points of its nodes.
+     */
+    private lateinit var ring: Pair<Point2D, Double>
+    private lateinit var ringPoints: List<Point2D>
 
-        computeMED()
+    /**
+     * Regions with an edge to the ring.
+     */
+    private val adjacentToOutside = HashSet<AbstractBasicRegion>()
+
+    init {
+        val kept = computeEGD(previous)
+
+        computeMED(kept, previous)
     }
 
-    private fun computeEGD() {
+    /**
+     * @return node of [previous] for each region that has not changed since, else null
+     */
+    private fun computeEGD(previous: MED?): Array<EulerDualNode?> {
         Profiler.start("Creating EGD nodes")
-        nodes = computeEGDNodes()
+        nodes = mapRegions { createNode(it) }.toMutableList()
+        val kept = computeKeptNodes(previous)
         Profiler.end("Creating EGD nodes")
 
         Profiler.start("Creating EGD edges")
-        edges = computeEGDEdges()
+        edges = computeEGDEdges(kept, previous)
         Profiler.end("Creating EGD edges")
+
+        return kept
     }
 
-    private fun computeMED() {
-        val (center, radius) = computeMEDRing()
+    private fun computeMED(kept: Array<EulerDualNode?>, previous: MED?) {
+        ring = computeMEDRing()
+        val (center, radius) = ring
 
         Profiler.start("Creating MED nodes")
-        val nodesMED = computeMEDNodes(center, radius)
-
-        // add the adjacent edges between outside and inside
-        val outside = BasicRegion(AbstractBasicRegion.OUTSIDE, allContours)
+        val nodesMED = computeMEDNodes(center, radius, if (previous?.ring == ring) previous.ringPoints else null)
 
-        nodes.filter { it.zone.isTopologicallyAdjacent(outside) }
-                .forEach { node ->
-                    val closestMEDNode = nodesMED.sortedBy { it.point.distance(node.point) }.first()
+        // outside has not changed, so neither has adjacency of unchanged regions to it
+        val outsideKept = previous != null && outside.getPolygonShape() === previous.outside.getPolygonShape()
 
-                    edges.add(EulerDualEdge(node, closestMEDNode,
-                            Line(node.point.x, node.point.y, closestMEDNode.point.x, closestMEDNode.point.y)))
-                }
+        // add the adjacent edges between outside and inside
+        nodes.filterIndexed { i, node ->
+            if (outsideKept && kept[i] != null)
+                previous!!.adjacentToOutside.contains(node.zone.abRegion)
+            else
+                isAdjacent(node.zone, outside)
+        }.forEach { node ->
+            adjacentToOutside.add(node.zone.abRegion)
+
+            val closestMEDNode = nodesMED.sortedBy { it.point.distance(node.point) }.first()
+
+            edges.add(EulerDualEdge(node, closestMEDNode,
+                    Line(node.point.x, node.point.y, closestMEDNode.point.x, closestMEDNode.point.y)))
+        }
 
         // then add nodesMED to nodes
         nodes.addAll(nodesMED)
@@ -82,7 +124,7 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
      * @return MED ring center, radius
      */
     private fun computeMEDRing(): Pair<Point2D, Double> {
-        val bounds = allBasicRegions.map { it.getPolygonShape().boundingBox() }
+        val bounds = allBasicRegions.map { it.getBoundingBox() }
 
         val minX = bounds.map { it.minX }.min()
         val minY = bounds.map { it.minY }.min()
@@ -100,53 +142,147 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
         return center.to(radius)
     }
 
-    private fun computeEGDNodes(): MutableList<EulerDualNode> {
-        return if (settings.isParallel) computeNodesParallel() else computeNodesSequential()
-    }
+    /**
+     * Maps all basic regions, in parallel based on settings.
+     */
+    private fun <T> mapRegions(f: (BasicRegion) -> T): List<T> {
+        if (settings.isParallel) {
+            return allBasicRegions.parallelStream()
+                    .map { f(it) }
+                    .collect(Collectors.toList())
+        }
 
-    private fun computeNodesSequential(): MutableList<EulerDualNode> {
-        return allBasicRegions.map { createNode(it) }.toMutableList()
+        return allBasicRegions.map(f)
     }
 
-    private fun computeNodesParallel(): MutableList<EulerDualNode> {
-        return Stream.of(*allBasicRegions.toTypedArray())
-                .parallel()
-                .map { createNode(it) }
-                .collect(Collectors.toList()) as MutableList<EulerDualNode>
+    private fun computeKeptNodes(previous: MED?): Array<EulerDualNode?> {
+        if (previous == null)
+            return arrayOfNulls(allBasicRegions.size)
+
+        val previousNodes = previous.nodes.subList(0, previous.allBasicRegions.size).associateBy { it.zone.abRegion }
+
+        val kept = mapRegions { region ->
+            previousNodes[region.abRegion]?.let { if (region.isUnchangedFrom(it.zone)) it else null }
+        }.toTypedArray()
+
+        // a region listed twice is computed again, so each previous node is kept at most once
+        val seen = Collections.newSetFromMap(IdentityHashMap<EulerDualNode, Boolean>())
+        for (i in kept.indices) {
+            if (kept[i] != null && !seen.add(kept[i]))
+                kept[i] = null
+        }
+
+        return kept
     }
 
     /**
-     * Computes EGD edges based on given pairs of nodes.
+     * Computes EGD edges based on candidate pairs of nodes, see [computeCandidatePairs].
      * An edge is constructed if basic regions of nodes are topologically adjacent.
+     * Edges of [previous] between [kept] nodes are taken over, so only pairs with a changed node are tested.
      * Runs in parallel mode based on settings.
      */
-    private fun computeEGDEdges(): MutableList<EulerDualEdge> {
+    private fun computeEGDEdges(kept: Array<EulerDualNode?>, previous: MED?): MutableList<EulerDualEdge> {
         log.trace("Computing EGD edges")
 
-        // go through each pair of nodes
-        val pairs = ArrayList< Pair<EulerDualNode, EulerDualNode> >()
+        // pair key -> edge, in the order of testing all pairs
+        val result = TreeMap<Long, EulerDualEdge>()
 
-        for (i in nodes.indices) {
-            var j = i + 1
-            while (j < nodes.size) {
-                val node1 = nodes[i]
-                val node2 = nodes[j]
+        // pairs of kept nodes whose edge a new curve crosses are tested again
+        val retest = HashSet<Long>()
 
-                pairs.add(node1.to(node2))
+        if (previous != null) {
+            val keptIndex = IdentityHashMap<EulerDualNode, Int>()
+            kept.forEachIndexed { i, node -> if (node != null) keptIndex[node] = i }
 
-                j++
+            val addedCurves = allContours.values.drop(previous.numCurves)
+
+            previous.edges.forEach {
+                val i = keptIndex[it.v1]
+                val j = keptIndex[it.v2]
+
+                if (i != null && j != null) {
+                    val key = pairKey(Math.min(i, j), Math.max(i, j))
+
+                    if (isCrossed(it, addedCurves)) {
+                        retest.add(key)
+                    } else {
+                        result[key] = EulerDualEdge(nodes[Math.min(i, j)], nodes[Math.max(i, j)], it.curve)
+                    }
+                }
             }
         }
 
-        var stream = Stream.of(*pairs.toTypedArray())
+        // go through each candidate pair of nodes, unless both are kept
+        val pairs = computeCandidatePairs().filter { kept[pairFirst(it)] == null || kept[pairSecond(it)] == null || retest.contains(it) }
+
+        log.debug("Kept {} of {} nodes, testing {} pairs", kept.count { it != null }, nodes.size, pairs.size)
+
+        var stream = pairs.stream()
 
         if (settings.isParallel) {
             stream = stream.parallel()
         }
 
-        return stream.filter { it.first.zone.isTopologicallyAdjacent(it.second.zone) }
-                .map { createEdge(it.first, it.second) }
-                .collect(Collectors.toList()) as MutableList<EulerDualEdge>
+        stream.filter { isAdjacent(nodes[pairFirst(it)].zone, nodes[pairSecond(it)].zone) }
+                .map { it.to(createEdge(nodes[pairFirst(it)], nodes[pairSecond(it)])) }
+                .collect(Collectors.toList())
+                .forEach { result[it.first] = it.second }
+
+        return result.values.toMutableList()
+    }
+
+    /**
+     * Only regions that differ by exactly one curve can be adjacent,
+     * so the candidates of a region are found by flipping each curve in or out of it.
+     *
+     * @return keys of candidate pairs (i, j), i < j, in order
+     */
+    private fun computeCandidatePairs(): List<Long> {
+        val indices = HashMap<AbstractBasicRegion, MutableList<Int>>()
+        nodes.forEachIndexed { i, node -> indices.getOrPut(node.zone.abRegion) { arrayListOf() }.add(i) }
+
+        val pairs = ArrayList<Long>()
+        val neighbours = ArrayList<Int>()
+
+        for (i in nodes.indices) {
+            val region = nodes[i].zone.abRegion
+
+            for (curve in allContours.keys) {
+                val neighbour = if (region.contains(curve)) region.moveOutside(curve) else region.moveInside(curve)
+
+                indices[neighbour]?.forEach { j -> if (j > i) neighbours.add(j) }
+            }
+
+            neighbours.sort()
+            neighbours.forEach { j -> pairs.add(pairKey(i, j)) }
+            neighbours.clear()
+        }
+
+        return pairs
+    }
+
+    private fun isAdjacent(region1: BasicRegion, region2: BasicRegion): Boolean {
+        return arrangement?.isAdjacent(region1.abRegion, region2.abRegion) == true || region1.isTopologicallyAdjacent(region2)
+    }
+
+    private fun pairKey(i: Int, j: Int) = (i.toLong() shl 32) or j.toLong()
+
+    private fun pairFirst(key: Long) = (key ushr 32).toInt()
+
+    private fun pairSecond(key: Long) = key.toInt()
+
+    /**
+     * A straight edge stays valid unless one of [curves] crosses it, see [isOK].
+     * A routed edge is not tested: it is routed inside the union of its two regions,
+     * and it is only taken over if both regions kept their polygons, see [BasicRegion.isUnchangedFrom],
+     * i.e. no added curve touches them, so no added curve can cross it either.
+     */
+    private fun isCrossed(edge: EulerDualEdge, curves: List<Curve>): Boolean {
+        val q = edge.curve as? Line ?: return false
+
+        val segment = Line2D.Double(q.startX, q.startY, q.endX, q.endY)
+
+        return curves.any { it.isOutlineCrossedBy(segment, 1.0) }
     }
 
     private fun createNode(zone: BasicRegion): EulerDualNode {
@@ -170,31 +306,26 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
 
         log.trace("Searching ${node1.zone} - ${node2.zone} : $curve")
 
-        if (!isOK(line, curve, allContours.values.toList())) {
-            val poly = EdgeRouter.route(node1.zone, node2.zone)
+        if (!isOK(Line2D.Double(p1.x, p1.y, p2.x, p2.y), curve)) {
+            val route = EdgeRouter.route(node1.zone, node2.zone, settings.polygonEngine.clipper)
 
-            if (poly.points.size == 4) {
+            if (route.numPoints == 2) {
                 throw RuntimeException("Failed to route edge: ${node1.zone} - ${node2.zone}")
             }
 
-            val points = arrayListOf<Double>()
+            val points = PackedPolygon.Builder(route.numPoints / 16 + 2)
 
             // shorten vertices by i values
             var i = 0
-            while (i < poly.points.size - 2) {
-                points.add(poly.points[i])
-                points.add(poly.points[i+1])
+            while (i < route.numPoints - 1) {
+                points.add(route.x(i), route.y(i))
 
-                i += 32
+                i += 16
             }
 
-            points.addAll(poly.points.takeLast(2))
-
-            val newPoly = Polyline(*points.toDoubleArray())
-
-            settings.globalMap["astar"] = newPoly
+            points.add(route.x(route.numPoints - 1), route.y(route.numPoints - 1))
 
-            return EulerDualEdge(node1, node2, newPoly)
+            return EulerDualEdge(node1, node2, points.build().toPolyline())
         }
 
         return EulerDualEdge(node1, node2, line)
@@ -203,14 +334,8 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
     /**
      * Does curve segment [q] only pass through [actual] curve.
      */
-    private fun isOK(q: Shape, actual: AbstractCurve, curves: List<Curve>): Boolean {
-        val list = curves.filter {
-            val s = it.computeShape()
-            s.fill = null
-            s.stroke = Color.BROWN
-
-            !Shape.intersect(s, q).getLayoutBounds().isEmpty()
-        }
+    private fun isOK(q: Line2D, actual: AbstractCurve): Boolean {
+        val list = curveIndex.crossedBy(q)
 
         if (list.size != 1)
             return false
@@ -218,17 +343,27 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
         return list.get(0).abstractCurve == actual
     }
 
-    private fun computeMEDNodes(center: Point2D, radius: Double): List<EulerDualNode> {
+    /**
+     * @param points points of the ring if it has not changed, else null
+     */
+    private fun computeMEDNodes(center: Point2D, radius: Double, points: List<Point2D>?): List<EulerDualNode> {
         log.trace("Computing MED nodes")
 
+        ringPoints = points ?: computeMEDRingPoints(center, radius)
+
+        // make "distinct" nodes so that jgrapht doesn't think it's a loop
+        // TODO: it shouldn't since we also check points, which ARE different
+        return ringPoints.map { EulerDualNode(BasicRegion(AbstractBasicRegion.OUTSIDE, allContours, settings), it) }
+    }
+
+    private fun computeMEDRingPoints(center: Point2D, radius: Double): List<Point2D> {
+
         val polygonMED = Converter.toPolygon2D(Converter.makePolygon(radius.toInt(), 16))
 
         val firstPt = Point2D(center.x - radius, center.y)
         val vector = firstPt.subtract(polygonMED.vertex(0).x(), polygonMED.vertex(0).y())
 
-        // make "distinct" nodes so that jgrapht doesn't think it's a loop
-        // TODO: it shouldn't since we also check points, which ARE different
-        return polygonMED.vertices().map { EulerDualNode(BasicRegion(AbstractBasicRegion.OUTSIDE, allContours), Point2D(it.x(), it.y()).add(vector)) }
+        return polygonMED.vertices().map { Point2D(it.x(), it.y()).add(vector) }
     }
 
     /**
@@ -399,27 +534,35 @@ class MED(val allBasicRegions: List<BasicRegion>, private val allContours: Map<A
     }
 
     /**
-     * Enumerate all simple cycles.
+     * @return MED of the same regions and curves built without an earlier MED, which this MED must equal
      */
-    private fun enumerateCycles(): List<GraphCycle<EulerDualNode, EulerDualEdge>> {
+    internal fun rebuild() = MED(allBasicRegions, outside, allContours, settings, null, arrangement)
+
+    /**
+     * @return shortest valid cycle that passes through all [zonesToSplit] or null if there is none
+     */
+    fun computeCycle(zonesToSplit: List<AbstractBasicRegion>): GraphCycle<EulerDualNode, EulerDualEdge>? {
+        log.trace("Computing cycle for $zonesToSplit")
+
         val graph = CycleFinder<EulerDualNode, EulerDualEdge>(EulerDualEdge::class.java)
         nodes.forEach { graph.addVertex(it) }
         edges.forEach { graph.addEdge(it.v1, it.v2, it) }
 
-        return graph.computeCycles()
-    }
+        var numCycles = 0
 
-    fun computeCycle(zonesToSplit: List<AbstractBasicRegion>): GraphCycle<EulerDualNode, EulerDualEdge>? {
-        log.trace("Computing cycle for $zonesToSplit")
+        Profiler.start("Searching cycles")
+
+        // only the outside zone may be visited more than once, see isValid()
+        val cycle = graph.findShortestCycle<AbstractBasicRegion>({ it.zone.abRegion }, zonesToSplit, { it == AbstractBasicRegion.OUTSIDE }, {
+            numCycles++
+            isValid(it)
+        })
 
-        Profiler.start("Enumerating cycles")
-        val cycles = enumerateCycles()
-        Profiler.end("Enumerating cycles")
+        Profiler.end("Searching cycles")
 
-        log.info("Found cycles: ${cycles.size}")
+        log.info("Checked cycles: $numCycles")
 
-        //        check that cycle nodes are equal or superset of what is required        and is valid
-        return cycles.find { it.nodes.map { it.zone.abRegion }.containsAll(zonesToSplit) && isValid(it) }
+        return cycle
     }
 
     /**
@@ -0,0 +1,42 @@
+package icurves.layout
+
+import icurves.description.AbstractCurve
+import icurves.description.Description
+import icurves.diagram.BasicRegion
+import icurves.diagram.Curve
+import icurves.graph.MED
+
+/**
+ * The result of laying out a single description.
+ */
+class Layout(
+
+        val description: Description,
+
+        /**
+         * Concrete curves in the order they were embedded.
+         */
+        val curves: Map<AbstractCurve, Curve>,
+
+        /**
+         * Basic regions of the final diagram, including the ones that are shaded.
+         */
+        val basicRegions: List<BasicRegion>,
+
+        /**
+         * Basic regions that are not in the description.
+         */
+        val shadedRegions: List<BasicRegion>,
+
+        /**
+         * The final MED, only present if settings asked for it.
+         */
+        val med: MED?,
+
+        /**
+         * Time in nanoseconds spent in each pipeline stage, in the order the stages ran.
+         */
+        val timings: Map<String, Long>) {
+
+    override fun toString() = "Layout[$description, curves=${curves.values.map { it.toDebugString() }}]"
+}
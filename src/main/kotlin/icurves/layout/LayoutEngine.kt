@@ -0,0 +1,53 @@
+package icurves.layout
+
+import icurves.decomposition.DecomposerFactory
+import icurves.description.Description
+import icurves.diagram.DiagramCreator
+import icurves.recomposition.RecomposerFactory
+
+/**
+ * Headless entry point to the layout pipeline.
+ * Does not depend on the GUI, so a single engine can be used
+ * to lay out many descriptions concurrently.
+ */
+class LayoutEngine(val settings: LayoutSettings) {
+
+    companion object {
+        const val STAGE_DECOMPOSITION = "decomposition"
+        const val STAGE_RECOMPOSITION = "recomposition"
+        const val STAGE_EMBEDDING = "embedding"
+    }
+
+    constructor() : this(LayoutSettings.DEFAULT)
+
+    /**
+     * Lays out given description.
+     * Each call uses its own diagram creator, hence it is safe to call this from multiple threads.
+     *
+     * @param description the abstract description
+     * @return curves and regions of the diagram
+     */
+    fun layout(description: Description): Layout {
+        val timings = LinkedHashMap<String, Long>()
+
+        var start = System.nanoTime()
+        val dSteps = DecomposerFactory.newDecomposer(settings.decompType).decompose(description)
+        timings[STAGE_DECOMPOSITION] = System.nanoTime() - start
+
+        start = System.nanoTime()
+        val rSteps = RecomposerFactory.newRecomposer().recompose(dSteps)
+        timings[STAGE_RECOMPOSITION] = System.nanoTime() - start
+
+        start = System.nanoTime()
+        val creator = DiagramCreator(settings)
+        creator.createDiagram(description, rSteps)
+        timings[STAGE_EMBEDDING] = System.nanoTime() - start
+
+        return Layout(description,
+                LinkedHashMap(creator.curveToContour),
+                creator.basicRegions,
+                creator.shadedRegions,
+                if (settings.showMED) creator.modifiedDual else null,
+                timings)
+    }
+}
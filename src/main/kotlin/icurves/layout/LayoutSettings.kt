@@ -0,0 +1,94 @@
+package icurves.layout
+
+import icurves.decomposition.DecompositionStrategyType
+import icurves.geometry.FixedPointKernel
+import icurves.geometry.PolygonEngineType
+import javafx.scene.shape.Rectangle
+import math.geom2d.Point2D
+import math.geom2d.polygon.Polygon2D
+import math.geom2d.polygon.SimplePolygon2D
+
+/**
+ * Immutable settings for a single layout run.
+ * Unlike the GUI settings, an instance can be safely shared between threads.
+ */
+data class LayoutSettings @JvmOverloads constructor(
+
+        /**
+         * Use parallel streams when building the MED.
+         */
+        val isParallel: Boolean = false,
+
+        /**
+         * Smooth cycle based curves using Bezier approximation.
+         */
+        val useSmooth: Boolean = true,
+
+        val smoothFactor: Int = 10,
+
+        /**
+         * Distance between the diagram and the MED ring.
+         */
+        val medSize: Double = 100.0,
+
+        /**
+         * Keep the final MED, so that it can be rendered.
+         */
+        val showMED: Boolean = false,
+
+        val decompType: DecompositionStrategyType = DecompositionStrategyType.INNERMOST,
+
+        /**
+         * Half size of the bounding box that acts as the universe for basic regions.
+         */
+        val bboxSize: Double = 10000.0,
+
+        /**
+         * Engine for polygon operations on basic regions.
+         */
+        val polygonEngine: PolygonEngineType = PolygonEngineType.JAVAGEOM,
+
+        /**
+         * Grid spacing of the fixed-point kernel for the curve arrangement, 0 to use floating point with tolerances.
+         */
+        val fixedPointGrid: Double = 0.0,
+
+        /**
+         * Max distance in pixels of curve polygons from smoothed curves, 0 to sample each Bezier segment at fixed steps.
+         */
+        val flatteningTolerance: Double = 0.0) {
+
+    companion object {
+        @JvmField val DEFAULT = LayoutSettings()
+    }
+
+    /**
+     * Bounding box for computational geometry.
+     * It is never modified, so it is shared by all regions.
+     */
+    val geomBBox: Polygon2D by lazy {
+        SimplePolygon2D(Point2D(-bboxSize, -bboxSize),
+                Point2D(bboxSize, -bboxSize),
+                Point2D(bboxSize, bboxSize),
+                Point2D(-bboxSize, bboxSize))
+    }
+
+    /**
+     * Kernel for the curve arrangement, null if [fixedPointGrid] is 0.
+     */
+    val fixedPointKernel: FixedPointKernel? by lazy {
+        if (fixedPointGrid > 0) FixedPointKernel(fixedPointGrid) else null
+    }
+
+    /**
+     * JavaFX nodes are not thread-safe, so each call creates a new bounding box.
+     *
+     * @return bounding box for shape operations
+     */
+    fun createFXBBox(): Rectangle {
+        val r = Rectangle(bboxSize * 2, bboxSize * 2)
+        r.translateX = -bboxSize
+        r.translateY = -bboxSize
+        return r
+    }
+}
@@ -1,6 +1,7 @@
 package icurves.recomposition
 
 import icurves.description.AbstractBasicRegion
+import icurves.diagram.Arrangement
 import icurves.diagram.BasicRegion
 import icurves.diagram.DiagramCreator
 import icurves.guifx.SettingsController
@@ -12,38 +13,23 @@ import math.geom2d.polygon.MultiPolygon2D
  *
  * @author Almas Baimagambetov (almaslvl@gmail.com)
  */
-class PiercingData(numRegions: Int, private val cluster: List<BasicRegion>, private val basicRegions: List<BasicRegion>) {
+class PiercingData(numRegions: Int, private val cluster: List<BasicRegion>, private val basicRegions: List<BasicRegion>,
+                   arrangement: Arrangement? = null) {
 
     val center: Point2D?
     val radius: Double
 
     init {
+        // the arrangement knows where regions meet, else we search their polygons
+        val vertices = arrangement?.takeIf { it.isValid }?.let { findMeetingPoints(it) } ?: findSharedVertices(numRegions)
+
         if (numRegions == 4) {
-            center = cluster.map { it.getPolygonShape().vertices() }
-                    .flatten()
-                    .groupBy({ it.asInt })
-                    // we search for a vertex that is present in all 4 regions (sometimes we can have duplicates)
-                    .filter { it.value.size >= 4 }
-                    // ensure that each br in cluster has such a vertex
-                    .filter { entry ->
-                        cluster.all { it.getPolygonShape().vertices().map { it.asInt }.any { it.x == entry.key.x && it.y == entry.key.y } }
-                    }
-                    .map { Point2D(it.key.getX(), it.key.getY()) }
-                    // select the bottom circle, then top
-                    .sortedByDescending { it.y }
-                    .firstOrNull()
+            // select the bottom circle, then top
+            center = vertices.sortedByDescending { it.y }.firstOrNull()
 
         } else { // if 2
 
-            val map = cluster.map { it.getPolygonShape().vertices() }
-                    .flatten()
-                    .groupBy({ it.asInt })
-                    // we search for vertices present along 2 region bounds (collisions)
-                    .filter { it.value.size >= numRegions }
-                    .filter { entry ->
-                        cluster.all { it.getPolygonShape().vertices().map { it.asInt }.any { it.x == entry.key.x && it.y == entry.key.y } }
-                    }
-                    .map { Point2D(it.key.getX(), it.key.getY()) }
+            val map = vertices
                     // remove vertices that occur in other basic region bounds
                     // to filter out the corner vertices
                     .minus(
@@ -66,6 +52,33 @@ class PiercingData(numRegions: Int, private val cluster: List<BasicRegion>, priv
         }
     }
 
+    /**
+     * @return vertices where the regions of the cluster and no others meet, rounded as polygon vertices are
+     */
+    private fun findMeetingPoints(arrangement: Arrangement): List<Point2D> {
+        return arrangement.getMeetingPoints(cluster.map { it.abRegion })
+                .map { math.geom2d.Point2D(it.x, it.y).asInt }
+                .distinct()
+                .map { Point2D(it.getX(), it.getY()) }
+    }
+
+    /**
+     * @return vertices present in the polygons of all regions of the cluster, rounded
+     */
+    private fun findSharedVertices(numRegions: Int): List<Point2D> {
+        return cluster.map { it.getPolygonShape().vertices() }
+                .flatten()
+                .groupBy({ it.asInt })
+                // we search for a vertex that is present in all regions (sometimes we can have duplicates),
+                // i.e. collisions of 2 region bounds or a crossing of 4 regions
+                .filter { it.value.size >= numRegions }
+                // ensure that each br in cluster has such a vertex
+                .filter { entry ->
+                    cluster.all { it.getPolygonShape().vertices().map { it.asInt }.any { it.x == entry.key.x && it.y == entry.key.y } }
+                }
+                .map { Point2D(it.key.getX(), it.key.getY()) }
+    }
+
     fun isPiercing() = center != null
 
     private fun computeRadius(potentialCenter: Point2D): Double {
@@ -75,7 +88,7 @@ class PiercingData(numRegions: Int, private val cluster: List<BasicRegion>, priv
                     if (it.getPolygonShape() is MultiPolygon2D) {
 
                         // check signed distance and also of the complement
-                        val dist1 = Math.abs(it.getPolygonShape().boundary().signedDistance(potentialCenter.x, potentialCenter.y))
+                        val dist1 = Math.abs(it.getBoundary().signedDistance(potentialCenter.x, potentialCenter.y))
                         val dist2 = Math.abs(it.getPolygonShape().complement().boundary().signedDistance(potentialCenter.x, potentialCenter.y))
 
                         Math.min(dist1, dist2)
@@ -1,6 +1,5 @@
 package icurves.util
 
-import icurves.CurvesApp
 import icurves.algorithm.ClosedBezierSpline
 import javafx.geometry.Point2D
 import javafx.scene.paint.Color
@@ -195,7 +194,6 @@ object BezierApproximation {
 
 
 
-        CurvesApp.getInstance().settings.globalMap["controlPoints"] = controlPts
 
 
 
@@ -3,7 +3,8 @@ package icurves.util
 import icurves.diagram.curve.CircleCurve
 import javafx.geometry.Point2D
 import javafx.scene.paint.Color
-import javafx.scene.shape.Polygon
+import javafx.scene.shape.*
+import java.awt.geom.Path2D
 import math.geom2d.polygon.Polygon2D
 import math.geom2d.polygon.SimplePolygon2D
 import java.util.*
@@ -39,6 +40,47 @@ class Converter {
             return SimplePolygon2D(points)
         }
 
+        /**
+         * @return closed path through polygon points, including the polygon's translation
+         */
+        @JvmStatic fun toPath2D(polygon: Polygon): Path2D.Double {
+            val path = Path2D.Double(Path2D.WIND_NON_ZERO, polygon.points.size / 2 + 1)
+
+            var i = 0
+            while (i < polygon.points.size) {
+                val x = polygon.points[i] + polygon.translateX
+                val y = polygon.points[i + 1] + polygon.translateY
+
+                if (i == 0) path.moveTo(x, y) else path.lineTo(x, y)
+                i += 2
+            }
+
+            path.closePath()
+            return path
+        }
+
+        /**
+         * @return same path for geometry, the path must only contain absolute elements
+         */
+        @JvmStatic fun toPath2D(path: Path): Path2D.Double {
+            val path2D = Path2D.Double(if (path.fillRule == FillRule.EVEN_ODD) Path2D.WIND_EVEN_ODD else Path2D.WIND_NON_ZERO,
+                    path.elements.size)
+
+            path.elements.forEach {
+                when (it) {
+                    is MoveTo -> path2D.moveTo(it.x, it.y)
+                    is LineTo -> path2D.lineTo(it.x, it.y)
+                    is QuadCurveTo -> path2D.quadTo(it.controlX, it.controlY, it.x, it.y)
+                    is CubicCurveTo -> path2D.curveTo(it.controlX1, it.controlY1, it.controlX2, it.controlY2, it.x, it.y)
+                    is ClosePath -> path2D.closePath()
+
+                    else -> throw IllegalArgumentException("Unknown path element: $it")
+                }
+            }
+
+            return path2D
+        }
+
         @JvmStatic fun toPolygonFX(polygon: Polygon2D): Polygon {
             val points = DoubleArray(2 * polygon.vertexNumber())
 
@@ -0,0 +1,243 @@
+package icurves.util
+
+import icurves.description.AbstractBasicRegion
+import icurves.description.AbstractCurve
+import icurves.description.CurveLabels
+import icurves.description.Description
+import java.util.*
+
+/**
+ * Generates families of descriptions for scaling experiments.
+ * Random families are deterministic for a given seed.
+ *
+ * Curve labels are single characters (a-z, A-Z, 0-9), so that generated descriptions
+ * can be written in informal form and read back with [Description.from].
+ */
+object DescriptionGenerator {
+
+    private val LABELS = ('a'..'z') + ('A'..'Z') + ('0'..'9')
+
+    @JvmField val MAX_CURVES = LABELS.size
+
+    /**
+     * Venn-n: all 2^n zones.
+     */
+    @JvmStatic fun venn(n: Int): Description {
+        return randomSubsets(n, 1.0, 0)
+    }
+
+    /**
+     * Each non-empty subset of n curves is a zone with probability [density].
+     * Curves that end up in no zone get a zone of their own.
+     */
+    @JvmStatic fun randomSubsets(n: Int, density: Double, seed: Long): Description {
+        // 2^n subsets is already too many for anything above this
+        if (n > 24)
+            throw IllegalArgumentException("Too many curves for subset enumeration: $n")
+
+        val curves = curves(n)
+        val random = Random(seed)
+        val zones = arrayListOf<Set<AbstractCurve>>()
+
+        for (mask in 1 until (1 shl n)) {
+            if (density >= 1.0 || random.nextDouble() < density) {
+                zones.add(curves.filterIndexed { i, _ -> mask and (1 shl i) != 0 }.toSet())
+            }
+        }
+
+        curves.filter { curve -> zones.none { it.contains(curve) } }
+                .forEach { zones.add(setOf(it)) }
+
+        return toDescription(zones)
+    }
+
+    /**
+     * Each curve singly pierces the previous one: a ab b bc c ...
+     */
+    @JvmStatic fun singlePiercingChain(n: Int): Description {
+        val curves = curves(n)
+        val zones = arrayListOf<Set<AbstractCurve>>(setOf(curves[0]))
+
+        for (i in 1 until n) {
+            zones.add(setOf(curves[i]))
+            zones.add(setOf(curves[i - 1], curves[i]))
+        }
+
+        return toDescription(zones)
+    }
+
+    /**
+     * First two curves form Venn-2, then each curve doubly pierces the previous two.
+     */
+    @JvmStatic fun doublePiercingChain(n: Int): Description {
+        val curves = curves(n)
+        val zones = arrayListOf<Set<AbstractCurve>>(setOf(curves[0]))
+
+        if (n > 1) {
+            zones.add(setOf(curves[1]))
+            zones.add(setOf(curves[0], curves[1]))
+        }
+
+        for (i in 2 until n) {
+            val c1 = curves[i - 2]
+            val c2 = curves[i - 1]
+            val c = curves[i]
+
+            zones.add(setOf(c))
+            zones.add(setOf(c1, c))
+            zones.add(setOf(c2, c))
+            zones.add(setOf(c1, c2, c))
+        }
+
+        return toDescription(zones)
+    }
+
+    /**
+     * All curves are inside the first curve, grouped in chains where each curve
+     * is nested in the previous one, so the deepest zone is inside [depth] curves.
+     * Since every chain is inside the first curve, [depth] is at least 2.
+     */
+    @JvmStatic fun nested(n: Int, depth: Int): Description {
+        if (depth < 2)
+            throw IllegalArgumentException("Depth must be at least 2: $depth")
+
+        val curves = curves(n)
+        val zones = arrayListOf<Set<AbstractCurve>>(setOf(curves[0]))
+
+        var parent = setOf(curves[0])
+
+        for (i in 1 until n) {
+            // start a new chain inside the outermost curve
+            if (parent.size == depth) {
+                parent = setOf(curves[0])
+            }
+
+            parent = parent.plus(curves[i])
+            zones.add(parent)
+        }
+
+        return toDescription(zones)
+    }
+
+    /**
+     * Adds curves one by one. Each curve pierces existing curves with probability [piercingRatio]
+     * (single or double piercing with equal chance, if possible), otherwise it is nested in an existing zone.
+     * The result is always connected and drawable.
+     */
+    @JvmStatic fun random(n: Int, piercingRatio: Double, seed: Long): Description {
+        val curves = curves(n)
+        val random = Random(seed)
+
+        val zones = LinkedHashSet<Set<AbstractCurve>>()
+        zones.add(setOf())
+        zones.add(setOf(curves[0]))
+
+        for (i in 1 until n) {
+            val c = curves[i]
+            val zoneList = zones.toList()
+
+            var split: List<Set<AbstractCurve>> = emptyList()
+
+            if (random.nextDouble() < piercingRatio) {
+                split = if (random.nextBoolean()) {
+                    findSinglePiercing(zoneList, curves.take(i), random)
+                } else {
+                    findDoublePiercing(zoneList, curves.take(i), random)
+                }
+            }
+
+            if (split.isEmpty()) {
+                // nest in a non-outside zone to keep the description connected
+                split = listOf(zoneList[1 + random.nextInt(zoneList.size - 1)])
+            }
+
+            split.forEach { zones.add(it.plus(c)) }
+        }
+
+        return toDescription(zones.filter { it.isNotEmpty() })
+    }
+
+    private fun findSinglePiercing(zones: List<Set<AbstractCurve>>, curves: List<AbstractCurve>, random: Random): List<Set<AbstractCurve>> {
+        val candidates = arrayListOf<List<Set<AbstractCurve>>>()
+
+        for (z in zones) {
+            curves.filter { !z.contains(it) && zones.contains(z.plus(it)) }
+                    .forEach { candidates.add(listOf(z, z.plus(it))) }
+        }
+
+        return if (candidates.isEmpty()) emptyList() else candidates[random.nextInt(candidates.size)]
+    }
+
+    private fun findDoublePiercing(zones: List<Set<AbstractCurve>>, curves: List<AbstractCurve>, random: Random): List<Set<AbstractCurve>> {
+        val candidates = arrayListOf<List<Set<AbstractCurve>>>()
+
+        for (z in zones) {
+            val outside = curves.filter { !z.contains(it) && zones.contains(z.plus(it)) }
+
+            for (i in outside.indices) {
+                for (j in i + 1 until outside.size) {
+                    val z12 = z.plus(outside[i]).plus(outside[j])
+
+                    if (zones.contains(z12)) {
+                        candidates.add(listOf(z, z.plus(outside[i]), z.plus(outside[j]), z12))
+                    }
+                }
+            }
+        }
+
+        return if (candidates.isEmpty()) emptyList() else candidates[random.nextInt(candidates.size)]
+    }
+
+    private fun curves(n: Int): List<AbstractCurve> {
+        if (n < 1 || n > MAX_CURVES)
+            throw IllegalArgumentException("Number of curves must be in [1..$MAX_CURVES]: $n")
+
+        val labels = CurveLabels()
+
+        return LABELS.take(n).map { labels.curve(it.toString()) }
+    }
+
+    private fun toDescription(zones: Collection<Set<AbstractCurve>>): Description {
+        val regions = HashSet<AbstractBasicRegion>()
+        regions.add(AbstractBasicRegion.OUTSIDE)
+        zones.forEach { regions.add(AbstractBasicRegion(it)) }
+
+        return Description(regions.flatMap { it.inSet }.toSet(), regions)
+    }
+
+    /**
+     * Prints informal descriptions of a family for a range of curve counts,
+     * one per line, which can be fed to BatchLayout.
+     *
+     * Usage: DescriptionGenerator family minCurves maxCurves [param] [seed]
+     * where family is one of venn, subsets, single, double, nested, random;
+     * param is density for subsets (default 0.5), depth for nested (default 2)
+     * and piercing ratio for random (default 0.5).
+     */
+    @JvmStatic fun main(args: Array<String>) {
+        if (args.size < 3) {
+            println("Usage: DescriptionGenerator family minCurves maxCurves [param] [seed]")
+            return
+        }
+
+        val family = args[0]
+        val min = args[1].toInt()
+        val max = args[2].toInt()
+        val param = if (args.size > 3) args[3].toDouble() else null
+        val seed = if (args.size > 4) args[4].toLong() else 0L
+
+        for (n in min..max) {
+            val description = when (family) {
+                "venn" -> venn(n)
+                "subsets" -> randomSubsets(n, param ?: 0.5, seed)
+                "single" -> singlePiercingChain(n)
+                "double" -> doublePiercingChain(n)
+                "nested" -> nested(n, param?.toInt() ?: 2)
+                "random" -> random(n, param ?: 0.5, seed)
+                else -> throw IllegalArgumentException("Unknown family: $family")
+            }
+
+            println(description.getInformalDescription())
+        }
+    }
+}
@@ -9,19 +9,36 @@ import java.util.*
  */
 object Profiler {
 
-    private val map = LinkedHashMap<String, Long>()
+    /**
+     * Each thread has its own timings, so that layouts can be profiled concurrently.
+     */
+    private val timings = ThreadLocal.withInitial { LinkedHashMap<String, Long>() }
+
+    private val map: MutableMap<String, Long>
+        get() = timings.get()
+
+    /**
+     * Turn off to avoid console output, e.g. when benchmarking or running in batch.
+     */
+    @JvmStatic @Volatile var isEnabled = true
 
     fun reset() {
         map.clear()
     }
 
     fun start(name: String) {
+        if (!isEnabled)
+            return
+
         println("Starting $name")
 
         map[name] = System.nanoTime()
     }
 
     fun end(name: String) {
+        if (!isEnabled)
+            return
+
         val time = System.nanoTime() - map[name]!!
 
         println("%s took: %.3f sec".format(name, time / 1000000000.0))
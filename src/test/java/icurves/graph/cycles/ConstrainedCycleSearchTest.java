@@ -0,0 +1,247 @@
+package icurves.graph.cycles;
+
+import icurves.graph.GraphCycle;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ConstrainedCycleSearch} against all cycles from {@link ElementaryCyclesSearch}, filtered by the same constraints.
+ */
+public class ConstrainedCycleSearchTest {
+
+    private static final int NUM_GRAPHS = 1000;
+
+    @Test
+    public void shortestMatchesFilteredEnumeration() {
+        int numFound = 0;
+
+        for (int seed = 0; seed < NUM_GRAPHS; seed++) {
+            Random random = new Random(seed);
+
+            int numVertices = 4 + random.nextInt(5);
+            int numZones = 2 + random.nextInt(3);
+            boolean[][] matrix = randomGraph(random, numVertices, 0.3 + random.nextDouble() * 0.3);
+
+            int[] zoneOf = new int[numVertices];
+            for (int v = 0; v < numVertices; v++) {
+                zoneOf[v] = random.nextInt(numZones);
+            }
+
+            boolean[] repeatable = new boolean[numZones];
+            for (int zone = 0; zone < numZones; zone++) {
+                repeatable[zone] = random.nextInt(3) == 0;
+            }
+
+            int[] required = new int[random.nextInt(3)];
+            for (int i = 0; i < required.length; i++) {
+                required[i] = random.nextInt(numZones);
+            }
+
+            // some cycles are rejected, whatever their length
+            Predicate<int[]> isValid = cycle -> random.nextInt(4) != 0 || cycle.length > numVertices;
+            Map<List<Integer>, Boolean> verdicts = new HashMap<>();
+            Predicate<int[]> recordingIsValid = cycle -> verdicts.computeIfAbsent(toList(cycle), c -> isValid.test(cycle));
+
+            int[] result = new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf, repeatable, required)
+                    .findShortest(recordingIsValid);
+
+            // candidates the search did not ask about are valid, so the shortest accepted one is at most as long
+            int shortest = Integer.MAX_VALUE;
+            for (List<Integer> cycle : allCycles(matrix)) {
+                if (satisfies(cycle, zoneOf, repeatable, required) && verdicts.getOrDefault(cycle, true)) {
+                    shortest = Math.min(shortest, cycle.size());
+                }
+            }
+
+            if (shortest == Integer.MAX_VALUE) {
+                assertNull("seed " + seed, result);
+                continue;
+            }
+
+            assertNotNull("seed " + seed, result);
+            assertEquals("seed " + seed, shortest, result.length);
+            assertTrue("seed " + seed, allCycles(matrix).contains(toList(result)));
+            assertTrue("seed " + seed, satisfies(toList(result), zoneOf, repeatable, required));
+            assertTrue("seed " + seed, verdicts.get(toList(result)));
+
+            numFound++;
+        }
+
+        assertTrue(numFound > NUM_GRAPHS / 4);
+    }
+
+    @Test
+    public void requiredZoneWithoutVertexHasNoCycle() {
+        boolean[][] matrix = completeGraph(4);
+
+        // zone 2 has no vertex
+        int[] zoneOf = { 0, 0, 1, 1 };
+        boolean[] repeatable = { true, true, false };
+
+        assertNotNull(new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf, repeatable, new int[] { 0 })
+                .findShortest(cycle -> true));
+        assertNull(new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf, repeatable, new int[] { 0, 2 })
+                .findShortest(cycle -> true));
+
+        CycleFinder<String, DefaultEdge> finder = new CycleFinder<>(DefaultEdge.class);
+        for (String v : Arrays.asList("a", "b", "c")) {
+            finder.addVertex(v);
+        }
+
+        finder.addEdge("a", "b", new DefaultEdge());
+        finder.addEdge("b", "c", new DefaultEdge());
+        finder.addEdge("c", "a", new DefaultEdge());
+
+        assertNotNull(finder.findShortestCycle(v -> v, Collections.singletonList("a"), z -> false, c -> true));
+        assertNull(finder.findShortestCycle(v -> v, Arrays.asList("a", "d"), z -> false, c -> true));
+    }
+
+    @Test
+    public void onlyRepeatableZonesAreVisitedTwice() {
+        // a square, opposite corners in the same zone, like two nodes of the outside
+        boolean[][] matrix = new boolean[4][4];
+        for (int v = 0; v < 4; v++) {
+            matrix[v][(v + 1) % 4] = true;
+            matrix[(v + 1) % 4][v] = true;
+        }
+
+        int[] zoneOf = { 0, 1, 0, 2 };
+
+        int[] cycle = new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf,
+                new boolean[] { true, false, false }, new int[] { 1 }).findShortest(c -> true);
+
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, cycle);
+
+        assertNull(new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf,
+                new boolean[] { false, true, true }, new int[] { 1 }).findShortest(c -> true));
+    }
+
+    @Test
+    public void rejectedShortestCycleGivesNextShortest() {
+        // a triangle 0 1 2 and a longer way 0 3 4 2 around it
+        boolean[][] matrix = new boolean[5][5];
+        int[][] edges = { { 0, 1 }, { 1, 2 }, { 2, 0 }, { 0, 3 }, { 3, 4 }, { 4, 2 } };
+        for (int[] edge : edges) {
+            matrix[edge[0]][edge[1]] = true;
+            matrix[edge[1]][edge[0]] = true;
+        }
+
+        int[] zoneOf = { 0, 0, 0, 0, 0 };
+        boolean[] repeatable = { true };
+        int[] required = { 0 };
+
+        List<List<Integer>> asked = new ArrayList<>();
+
+        int[] cycle = new ConstrainedCycleSearch(AdjacencyList.getAdjacencyList(matrix), zoneOf, repeatable, required)
+                .findShortest(c -> {
+                    asked.add(toList(c));
+                    return asked.size() > 1;
+                });
+
+        assertEquals(Arrays.asList(0, 1, 2), asked.get(0));
+        assertEquals(4, cycle.length);
+        assertArrayEquals(new int[] { 0, 2, 4, 3 }, cycle);
+
+        // the generic version keeps the instance the check accepted
+        CycleFinder<Integer, DefaultEdge> finder = new CycleFinder<>(DefaultEdge.class);
+        for (int v = 0; v < 5; v++) {
+            finder.addVertex(v);
+        }
+
+        for (int[] edge : edges) {
+            finder.addEdge(edge[0], edge[1], new DefaultEdge());
+        }
+
+        List<GraphCycle<Integer, DefaultEdge>> checked = new ArrayList<>();
+
+        GraphCycle<Integer, DefaultEdge> graphCycle = finder.findShortestCycle(v -> 0, Collections.singletonList(0), z -> true, c -> {
+            checked.add(c);
+            return checked.size() > 1;
+        });
+
+        assertSame(checked.get(1), graphCycle);
+        assertEquals(4, graphCycle.length());
+    }
+
+    private static boolean[][] randomGraph(Random random, int numVertices, double density) {
+        boolean[][] matrix = new boolean[numVertices][numVertices];
+
+        for (int i = 0; i < numVertices; i++) {
+            for (int j = i + 1; j < numVertices; j++) {
+                if (random.nextDouble() < density) {
+                    matrix[i][j] = true;
+                    matrix[j][i] = true;
+                }
+            }
+        }
+
+        return matrix;
+    }
+
+    private static boolean[][] completeGraph(int numVertices) {
+        boolean[][] matrix = new boolean[numVertices][numVertices];
+
+        for (int i = 0; i < numVertices; i++) {
+            for (int j = 0; j < numVertices; j++) {
+                matrix[i][j] = i != j;
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @return each undirected cycle once, starting with its lowest vertex, in the direction with the smaller second vertex
+     */
+    private static List<List<Integer>> allCycles(boolean[][] matrix) {
+        Integer[] nodes = new Integer[matrix.length];
+        for (int v = 0; v < nodes.length; v++) {
+            nodes[v] = v;
+        }
+
+        List<List<Integer>> cycles = new ArrayList<>();
+        for (Object cycle : new ElementaryCyclesSearch(matrix, nodes, false, true).getElementaryCycles()) {
+            List<Integer> vertices = new ArrayList<>();
+            for (Object v : (List<?>) cycle) {
+                vertices.add((Integer) v);
+            }
+
+            cycles.add(vertices);
+        }
+
+        return cycles;
+    }
+
+    private static boolean satisfies(List<Integer> cycle, int[] zoneOf, boolean[] repeatable, int[] required) {
+        int[] count = new int[repeatable.length];
+        for (int v : cycle) {
+            count[zoneOf[v]]++;
+        }
+
+        for (int zone = 0; zone < count.length; zone++) {
+            if (count[zone] > 1 && !repeatable[zone])
+                return false;
+        }
+
+        for (int zone : required) {
+            if (count[zone] == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    private static List<Integer> toList(int[] cycle) {
+        List<Integer> list = new ArrayList<>(cycle.length);
+        for (int v : cycle) {
+            list.add(v);
+        }
+
+        return list;
+    }
+}
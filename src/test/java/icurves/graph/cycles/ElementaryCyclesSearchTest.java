@@ -0,0 +1,156 @@
+package icurves.graph.cycles;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cycles of {@link ElementaryCyclesSearch} on small graphs, in the order Johnson's algorithm finds them.
+ */
+public class ElementaryCyclesSearchTest {
+
+    private static final String[] NODES = { "a", "b", "c", "d", "e", "f" };
+
+    @Test
+    public void directedCycles() {
+        boolean[][] twoCycle = directed(3, 0, 1, 1, 2, 2, 0, 1, 0);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b"),
+                Arrays.asList("a", "b", "c")),
+                new ElementaryCyclesSearch(twoCycle, NODES).getElementaryCycles());
+
+        // the second cycle does not contain a, so it is found from b
+        boolean[][] sharedEdge = directed(4, 0, 1, 1, 2, 2, 0, 2, 3, 3, 1);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("b", "c", "d")),
+                new ElementaryCyclesSearch(sharedEdge, NODES).getElementaryCycles());
+
+        assertEquals(Arrays.asList(), new ElementaryCyclesSearch(directed(4, 0, 1, 1, 2, 0, 2, 2, 3), NODES).getElementaryCycles());
+    }
+
+    @Test
+    public void undirectedCycles() {
+        boolean[][] complete = undirected(4, 0, 1, 0, 2, 0, 3, 1, 2, 1, 3, 2, 3);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("a", "b", "c", "d"),
+                Arrays.asList("a", "b", "d"),
+                Arrays.asList("a", "b", "d", "c"),
+                Arrays.asList("a", "c", "b", "d"),
+                Arrays.asList("a", "c", "d"),
+                Arrays.asList("b", "c", "d")),
+                new ElementaryCyclesSearch(complete, NODES, false, true).getElementaryCycles());
+
+        // two triangles joined by an edge that is on no cycle
+        boolean[][] triangles = undirected(6, 0, 1, 1, 2, 2, 0, 2, 3, 3, 4, 4, 5, 5, 3);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("d", "e", "f")),
+                new ElementaryCyclesSearch(triangles, NODES, false, true).getElementaryCycles());
+
+        // a tree has 2-cycles only when directed
+        boolean[][] path = undirected(3, 0, 1, 1, 2);
+
+        assertEquals(Arrays.asList(), new ElementaryCyclesSearch(path, NODES, false, true).getElementaryCycles());
+        assertEquals(2, new ElementaryCyclesSearch(path, NODES).getElementaryCycles().size());
+    }
+
+    @Test
+    public void longRingDoesNotOverflowStack() {
+        int numNodes = 20000;
+
+        Integer[] nodes = new Integer[numNodes];
+        boolean[][] matrix = new boolean[numNodes][numNodes];
+
+        for (int v = 0; v < numNodes; v++) {
+            nodes[v] = v;
+            matrix[v][(v + 1) % numNodes] = true;
+        }
+
+        List<List<Object>> cycles = new ElementaryCyclesSearch(matrix, nodes).getElementaryCycles();
+
+        assertEquals(1, cycles.size());
+        assertEquals(Arrays.asList((Object[]) nodes), cycles.get(0));
+
+        // undirected, the rest of the ring is searched again from each later node, so keep it shorter
+        int numUndirected = 2000;
+        matrix = new boolean[numUndirected][numUndirected];
+
+        for (int v = 0; v < numUndirected; v++) {
+            matrix[v][(v + 1) % numUndirected] = true;
+            matrix[(v + 1) % numUndirected][v] = true;
+        }
+
+        cycles = new ElementaryCyclesSearch(matrix, nodes, false, true).getElementaryCycles();
+
+        assertEquals(1, cycles.size());
+        assertEquals(Arrays.asList((Object[]) nodes).subList(0, numUndirected), cycles.get(0));
+    }
+
+    @Test
+    public void parallelFindsSameCyclesInSameOrder() {
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+
+            int numNodes = 3 + random.nextInt(10);
+            double density = 0.1 + random.nextDouble() * 0.4;
+            boolean undirected = random.nextBoolean();
+
+            Integer[] nodes = new Integer[numNodes];
+            boolean[][] matrix = new boolean[numNodes][numNodes];
+
+            for (int i = 0; i < numNodes; i++) {
+                nodes[i] = i;
+
+                for (int j = 0; j < numNodes; j++) {
+                    if (i != j && random.nextDouble() < density) {
+                        matrix[i][j] = true;
+
+                        if (undirected) {
+                            matrix[j][i] = true;
+                        }
+                    }
+                }
+            }
+
+            assertEquals("seed " + seed,
+                    new ElementaryCyclesSearch(matrix, nodes, false, undirected).getElementaryCycles(),
+                    new ElementaryCyclesSearch(matrix, nodes, true, undirected).getElementaryCycles());
+        }
+    }
+
+    /**
+     * @param edges pairs of source and target
+     */
+    private static boolean[][] directed(int numNodes, int... edges) {
+        boolean[][] matrix = new boolean[numNodes][numNodes];
+
+        for (int i = 0; i < edges.length; i += 2) {
+            matrix[edges[i]][edges[i + 1]] = true;
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @param edges pairs of end nodes
+     */
+    private static boolean[][] undirected(int numNodes, int... edges) {
+        boolean[][] matrix = directed(numNodes, edges);
+
+        for (int i = 0; i < edges.length; i += 2) {
+            matrix[edges[i + 1]][edges[i]] = true;
+        }
+
+        return matrix;
+    }
+}
@@ -0,0 +1,189 @@
+package icurves.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Random operations on {@link PersistentSortedSet}, checked against {@link TreeSet}.
+ */
+public class PersistentSortedSetTest {
+
+    private static final int NUM_RUNS = 50;
+    private static final int NUM_OPERATIONS = 400;
+    private static final int MAX_VALUE = 200;
+
+    @Test
+    public void plusAndMinusMatchTreeSet() {
+        for (int seed = 0; seed < NUM_RUNS; seed++) {
+            Random random = new Random(seed);
+
+            PersistentSortedSet<Integer> set = PersistentSortedSet.empty();
+            TreeSet<Integer> expected = new TreeSet<>();
+
+            for (int i = 0; i < NUM_OPERATIONS; i++) {
+                int value = random.nextInt(MAX_VALUE);
+
+                PersistentSortedSet<Integer> next;
+
+                if (random.nextInt(3) == 0) {
+                    next = set.minus(value);
+                    assertEquals(expected.remove(value), next != set);
+                } else {
+                    next = set.plus(value);
+                    assertEquals(expected.add(value), next != set);
+                }
+
+                set = next;
+                assertSameSet(expected, set);
+            }
+        }
+    }
+
+    @Test
+    public void earlierVersionsDoNotChange() {
+        Random random = new Random(1);
+
+        List<PersistentSortedSet<Integer>> versions = new ArrayList<>();
+        List<TreeSet<Integer>> expectedVersions = new ArrayList<>();
+
+        PersistentSortedSet<Integer> set = PersistentSortedSet.empty();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < NUM_OPERATIONS; i++) {
+            int value = random.nextInt(MAX_VALUE);
+
+            if (random.nextBoolean()) {
+                set = set.plus(value);
+                expected.add(value);
+            } else {
+                set = set.minus(value);
+                expected.remove(value);
+            }
+
+            versions.add(set);
+            expectedVersions.add(new TreeSet<>(expected));
+        }
+
+        for (int i = 0; i < versions.size(); i++) {
+            assertSameSet(expectedVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    public void plusAllAndMinusAllMatchTreeSet() {
+        for (int seed = 0; seed < NUM_RUNS; seed++) {
+            Random random = new Random(seed);
+
+            List<Integer> elements = randomList(random, random.nextInt(MAX_VALUE));
+            PersistentSortedSet<Integer> set = PersistentSortedSet.<Integer>empty().plusAll(elements);
+            TreeSet<Integer> expected = new TreeSet<>(elements);
+
+            assertSameSet(expected, set);
+
+            // small lists are removed one by one, large ones by a rebuild
+            for (int size : new int[] { 1, 5, MAX_VALUE / 2, MAX_VALUE * 2 }) {
+                List<Integer> removed = randomList(random, size);
+
+                TreeSet<Integer> expectedAfter = new TreeSet<>(expected);
+                expectedAfter.removeAll(removed);
+
+                assertSameSet(expectedAfter, set.minusAll(removed));
+                assertSameSet(expectedAfter, set.minusAll(new HashSet<>(removed)));
+            }
+
+            // nothing to remove, in both ways
+            List<Integer> absent = new ArrayList<>();
+            for (int i = 0; i < MAX_VALUE; i++) {
+                absent.add(MAX_VALUE + i);
+            }
+
+            assertSame(set, set.minusAll(absent.subList(0, 1)));
+            assertSame(set, set.minusAll(absent));
+        }
+    }
+
+    @Test
+    public void rangesMatchTreeSet() {
+        for (int seed = 0; seed < NUM_RUNS; seed++) {
+            Random random = new Random(seed);
+
+            List<Integer> elements = randomList(random, random.nextInt(MAX_VALUE));
+            PersistentSortedSet<Integer> set = PersistentSortedSet.of(elements);
+            TreeSet<Integer> expected = new TreeSet<>(elements);
+
+            for (int i = 0; i < 20; i++) {
+                int from = random.nextInt(MAX_VALUE + 2) - 1;
+                int to = from + random.nextInt(MAX_VALUE / 2);
+
+                assertSameSet(expected.subSet(from, to), (PersistentSortedSet<Integer>) set.subSet(from, to));
+                assertSameSet(expected.headSet(to), (PersistentSortedSet<Integer>) set.headSet(to));
+                assertSameSet(expected.tailSet(from), (PersistentSortedSet<Integer>) set.tailSet(from));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subSetRejectsReversedRange() {
+        PersistentSortedSet.of(Arrays.asList(1, 2, 3)).subSet(3, 1);
+    }
+
+    @Test
+    public void ofKeepsPersistentSet() {
+        PersistentSortedSet<Integer> set = PersistentSortedSet.of(Arrays.asList(3, 1, 2, 3));
+
+        assertSame(set, PersistentSortedSet.of(set));
+        assertSameSet(new TreeSet<>(Arrays.asList(1, 2, 3)), PersistentSortedSet.of(new TreeSet<>(set)));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstOfEmptySetThrows() {
+        PersistentSortedSet.<Integer>empty().first();
+    }
+
+    @Test
+    public void ascendingInsertionsStayBalanced() {
+        PersistentSortedSet<Integer> set = PersistentSortedSet.empty();
+
+        for (int i = 0; i < 10000; i++) {
+            set = set.plus(i);
+        }
+
+        assertTrue(set.isBalanced());
+
+        for (int i = 0; i < 10000; i += 2) {
+            set = set.minus(i);
+        }
+
+        assertTrue(set.isBalanced());
+        assertEquals(5000, set.size());
+    }
+
+    private static List<Integer> randomList(Random random, int size) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(MAX_VALUE));
+        }
+
+        return list;
+    }
+
+    private static void assertSameSet(SortedSet<Integer> expected, PersistentSortedSet<Integer> actual) {
+        assertTrue(actual.isBalanced());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+        }
+
+        for (int value = -1; value <= MAX_VALUE; value++) {
+            assertEquals(expected.contains(value), actual.contains(value));
+        }
+    }
+}
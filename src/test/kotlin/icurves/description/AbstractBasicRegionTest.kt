@@ -0,0 +1,134 @@
+package icurves.description
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+/**
+ * Bit set regions against the same operations on sorted sets of curves, as regions were stored before.
+ */
+class AbstractBasicRegionTest {
+
+    private val labels = CurveLabels()
+
+    /**
+     * More than two words of curves, created in an order other than label order, so indices and labels disagree.
+     */
+    private val curves = shuffled((0 until 150).map { "c%03d".format(it) }, 0).map { labels.curve(it) }
+
+    @Test
+    fun sameAsSortedSets() {
+        val random = Random(1)
+
+        for (i in 0 until 2000) {
+            // few curves give many regions of the same size and regions one curve apart
+            val pool = if (random.nextBoolean()) curves.subList(0, 6) else curves
+
+            val set1 = randomSet(random, pool)
+            val set2 = if (random.nextBoolean()) randomSet(random, pool) else oneCurveApart(random, set1, pool)
+
+            val region1 = regionOf(set1)
+            val region2 = regionOf(set2)
+
+            assertEquals(set1, region1.inSet)
+            assertEquals(set1.size, region1.getNumCurves())
+            assertEquals(region1, AbstractBasicRegion(set1))
+
+            pool.forEach { assertEquals(set1.contains(it), region1.contains(it)) }
+
+            assertEquals(set1 == set2, region1 == region2)
+
+            if (region1 == region2)
+                assertEquals(region1.hashCode(), region2.hashCode())
+
+            assertEquals("$set1 $set2", Integer.signum(compare(set1, set2)), Integer.signum(region1.compareTo(region2)))
+            assertEquals("$set1 $set2", straddledContour(set1, set2), region1.getStraddledContour(region2))
+            assertEquals("$set1 $set2", straddledContour(set2, set1), region2.getStraddledContour(region1))
+        }
+    }
+
+    @Test
+    fun movingCurvesOutGivesOutside() {
+        val all = curves.fold(AbstractBasicRegion.OUTSIDE) { region, curve -> region.moveInside(curve) }
+
+        assertEquals(curves.size, all.getNumCurves())
+        assertEquals(curves.sorted(), all.inSet.toList())
+
+        val none = shuffled(curves, 2).fold(all) { region, curve -> region.moveOutside(curve) }
+
+        assertEquals(AbstractBasicRegion.OUTSIDE, none)
+        assertEquals(AbstractBasicRegion.OUTSIDE.hashCode(), none.hashCode())
+        assertEquals(0, none.compareTo(AbstractBasicRegion.OUTSIDE))
+    }
+
+    @Test
+    fun curvesOfAnotherDescription() {
+        val other = CurveLabels().curve(curves[0].label)
+
+        assertFalse(AbstractBasicRegion.OUTSIDE.contains(other))
+        assertTrue(AbstractBasicRegion.OUTSIDE.moveInside(other).contains(other))
+
+        val region = AbstractBasicRegion.OUTSIDE.moveInside(curves[0])
+
+        for (operation in listOf<() -> Any>({ region.contains(other) }, { region.moveInside(other) },
+                { region.compareTo(AbstractBasicRegion.OUTSIDE.moveInside(other)) })) {
+            try {
+                operation()
+                throw AssertionError("Expected IllegalArgumentException")
+            } catch (e: IllegalArgumentException) {
+                // expected
+            }
+        }
+    }
+
+    private fun randomSet(random: Random, pool: List<AbstractCurve>): SortedSet<AbstractCurve> {
+        val probability = random.nextDouble()
+        return pool.filterTo(TreeSet()) { random.nextDouble() < probability }
+    }
+
+    private fun oneCurveApart(random: Random, set: SortedSet<AbstractCurve>, pool: List<AbstractCurve>): SortedSet<AbstractCurve> {
+        val curve = pool[random.nextInt(pool.size)]
+        val result = TreeSet(set)
+
+        if (!result.remove(curve))
+            result.add(curve)
+
+        return result
+    }
+
+    /**
+     * Half the regions are built curve by curve, in random order.
+     */
+    private fun regionOf(set: SortedSet<AbstractCurve>): AbstractBasicRegion {
+        if (set.size % 2 == 0)
+            return AbstractBasicRegion(set)
+
+        return shuffled(set, set.size.toLong()).fold(AbstractBasicRegion.OUTSIDE) { region, curve -> region.moveInside(curve) }
+    }
+
+    private fun <T> shuffled(elements: Collection<T>, seed: Long): List<T> {
+        val result = elements.toMutableList()
+        Collections.shuffle(result, Random(seed))
+        return result
+    }
+
+    private fun compare(set1: SortedSet<AbstractCurve>, set2: SortedSet<AbstractCurve>): Int {
+        if (set1.size != set2.size)
+            return set1.size.compareTo(set2.size)
+
+        return set1.zip(set2).map { it.first.compareTo(it.second) }.firstOrNull { it != 0 } ?: 0
+    }
+
+    private fun straddledContour(set1: SortedSet<AbstractCurve>, set2: SortedSet<AbstractCurve>): Optional<AbstractCurve> {
+        if (set1.size == set2.size)
+            return Optional.empty()
+
+        val bigger = if (set1.size > set2.size) set1 else set2
+        val smaller = if (bigger === set1) set2 else set1
+
+        val difference = bigger.minus(smaller)
+        return if (difference.size != 1) Optional.empty() else Optional.of(difference.first())
+    }
+}
@@ -0,0 +1,156 @@
+package icurves.diagram
+
+import icurves.description.AbstractBasicRegion
+import icurves.description.AbstractCurve
+import icurves.description.CurveLabels
+import icurves.diagram.curve.PolygonCurve
+import icurves.geometry.FixedPointKernel
+import javafx.geometry.Point2D
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Faces and their labels of small arrangements of squares, with and without a kernel.
+ */
+class ArrangementTest {
+
+    private val labels = CurveLabels()
+
+    private val a = labels.curve("a")
+    private val b = labels.curve("b")
+    private val c = labels.curve("c")
+
+    private val outside = AbstractBasicRegion.OUTSIDE
+
+    @Test
+    fun overlappingCurves() {
+        for (kernel in listOf(null, FixedPointKernel(0.5))) {
+            val arrangement = arrangementOf(kernel, square(a, 0.0, 0.0, 100.0), square(b, 50.0, 50.0, 100.0))
+
+            assertTrue(arrangement.isValid)
+
+            val ab = region(a, b)
+
+            for (label in listOf(outside, region(a), region(b), ab)) {
+                assertNotNull(arrangement.getCurves(label))
+            }
+
+            assertEquals(setOf(a, b), curvesOf(arrangement, ab))
+
+            assertTrue(arrangement.isAdjacent(outside, region(a)))
+            assertTrue(arrangement.isAdjacent(region(a), ab))
+            assertTrue(arrangement.isAdjacent(ab, region(b)))
+            assertFalse(arrangement.isAdjacent(outside, ab))
+            assertFalse(arrangement.isAdjacent(region(a), region(b)))
+
+            // the two crossings
+            val points = arrangement.getMeetingPoints(listOf(outside, region(a), region(b), ab))
+            assertEquals(setOf(Point2D(100.0, 50.0), Point2D(50.0, 100.0)), points.toSet())
+        }
+    }
+
+    @Test
+    fun nestedAndSeparateCurves() {
+        val arrangement = arrangementOf(null,
+                square(a, 0.0, 0.0, 100.0),
+                square(b, 25.0, 25.0, 50.0),
+                square(c, 200.0, 0.0, 100.0))
+
+        assertTrue(arrangement.isValid)
+
+        assertNotNull(arrangement.getCurves(region(a)))
+        assertNotNull(arrangement.getCurves(region(a, b)))
+        assertNotNull(arrangement.getCurves(region(c)))
+        assertNull(arrangement.getCurves(region(b)))
+
+        // the face of a has a hole
+        assertTrue(arrangement.isAdjacent(region(a), region(a, b)))
+        assertFalse(arrangement.isAdjacent(outside, region(a, b)))
+        assertTrue(arrangement.isAdjacent(outside, region(c)))
+
+        // a separate curve is not needed to cut out a
+        assertEquals(setOf(a, b), curvesOf(arrangement, region(a)))
+        assertEquals(setOf(c), curvesOf(arrangement, region(c)))
+    }
+
+    @Test
+    fun touchingCurvesAreNotValid() {
+        val arrangement = arrangementOf(null, square(a, 0.0, 0.0, 100.0), square(b, 100.0, 0.0, 100.0))
+
+        assertFalse(arrangement.isValid)
+        assertNull(arrangement.getCurves(region(a)))
+        assertFalse(arrangement.isAdjacent(outside, region(a)))
+
+        // stays invalid, curves are still recorded
+        arrangement.insert(square(c, 500.0, 500.0, 10.0))
+
+        assertFalse(arrangement.isValid)
+        assertEquals(3, arrangement.curves.size)
+        assertNull(arrangement.getCurves(region(c)))
+    }
+
+    @Test
+    fun coordinatesOutOfKernelRangeAreNotValid() {
+        val far = FixedPointKernel.MAX_UNITS * 2.0
+        val arrangement = arrangementOf(FixedPointKernel(1.0), square(a, far, far, 100.0))
+
+        assertFalse(arrangement.isValid)
+    }
+
+    @Test
+    fun crossingsRoundedOntoOtherEdgesAreNotValid() {
+        val box = polygon(a, 5.0, -5.0, 15.0, -5.0, 15.0, 5.0, 5.0, 5.0)
+        val triangle = polygon(b, 7.0, 1.0, 9.0, 4.0, 6.0, 4.0)
+
+        // crosses the left side of the box at (5, 0.5), which the grid rounds to (5, 1),
+        // so the rest of the segment runs through the corner of the triangle at (7, 1)
+        val crossing = polygon(c, 0.0, 0.0, 10.0, 1.0, 10.0, 20.0)
+
+        assertTrue(arrangementOf(null, box, triangle, crossing).isValid)
+        assertTrue(arrangementOf(FixedPointKernel(1.0), box, triangle).isValid)
+        assertFalse(arrangementOf(FixedPointKernel(1.0), box, triangle, crossing).isValid)
+    }
+
+    @Test
+    fun prefixOfChangedCurves() {
+        val curveA = square(a, 0.0, 0.0, 100.0)
+        val curveB = square(b, 50.0, 50.0, 100.0)
+        val arrangement = arrangementOf(null, curveA)
+
+        assertTrue(arrangement.isPrefixOf(listOf(curveA)))
+        assertTrue(arrangement.isPrefixOf(listOf(curveA, curveB)))
+        assertFalse(arrangement.isPrefixOf(listOf(curveB, curveA)))
+        assertFalse(arrangement.isPrefixOf(emptyList()))
+
+        curveA.invalidate()
+
+        assertFalse(arrangement.isPrefixOf(listOf(curveA, curveB)))
+    }
+
+    private fun arrangementOf(kernel: FixedPointKernel?, vararg curves: Curve): Arrangement {
+        val arrangement = Arrangement(kernel)
+        curves.forEach { arrangement.insert(it) }
+        return arrangement
+    }
+
+    private fun curvesOf(arrangement: Arrangement, label: AbstractBasicRegion) = arrangement.getCurves(label)!!.map { it.abstractCurve }.toSet()
+
+    private fun square(curve: AbstractCurve, x: Double, y: Double, size: Double): Curve {
+        return polygon(curve, x, y, x + size, y, x + size, y + size, x, y + size)
+    }
+
+    /**
+     * @param coordinates x, y pairs
+     */
+    private fun polygon(curve: AbstractCurve, vararg coordinates: Double): Curve {
+        return PolygonCurve(curve, (0 until coordinates.size / 2).map { Point2D(coordinates[it * 2], coordinates[it * 2 + 1]) })
+    }
+
+    private fun region(vararg curves: AbstractCurve): AbstractBasicRegion {
+        return curves.fold(outside) { region, curve -> region.moveInside(curve) }
+    }
+}
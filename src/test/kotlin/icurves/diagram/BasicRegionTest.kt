@@ -0,0 +1,89 @@
+package icurves.diagram
+
+import icurves.description.AbstractBasicRegion
+import icurves.description.CurveLabels
+import icurves.diagram.curve.CircleCurve
+import icurves.diagram.curve.PolygonCurve
+import icurves.geometry.MartinezClipper
+import icurves.layout.LayoutSettings
+import javafx.geometry.Point2D
+import math.geom2d.polygon.Polygon2D
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+/**
+ * A region keeps its polygon when a circle is added exactly if the circle's polygon does not overlap it,
+ * whether the circle shortcut or the polygon test decides.
+ */
+class BasicRegionTest {
+
+    private val settings = LayoutSettings.DEFAULT
+
+    private val labels = CurveLabels()
+
+    private val a = labels.curve("a")
+    private val b = labels.curve("b")
+    private val c = labels.curve("c")
+
+    private val curveToContour = mapOf(
+            a to PolygonCurve(a, listOf(Point2D(0.0, 0.0), Point2D(400.0, 0.0), Point2D(400.0, 400.0), Point2D(0.0, 400.0))),
+            b to CircleCurve(b, 300.0, 300.0, 150.0))
+
+    @Test
+    fun polygonKeptIfAddedCircleDoesNotTouchIt() {
+        val random = Random(0)
+        var numKept = 0
+        var numTouched = 0
+
+        val outside = AbstractBasicRegion.OUTSIDE
+
+        for (abRegion in listOf(outside.moveInside(a), outside.moveInside(b), outside.moveInside(a).moveInside(b), outside)) {
+            val region = BasicRegion(abRegion, curveToContour, settings)
+            val polygon = region.getPolygonShape()
+            val vertices = polygon.vertices().toList()
+
+            for (i in 0 until 300) {
+                val radius = 5.0 + random.nextDouble() * 250
+                val circle: CircleCurve
+
+                if (i % 2 == 0) {
+                    circle = CircleCurve(c, -300 + random.nextDouble() * 1100, -300 + random.nextDouble() * 1100, radius)
+                } else {
+                    // boundary passes within a few pixels of a vertex, either way
+                    val vertex = vertices[random.nextInt(vertices.size)]
+                    val angle = random.nextDouble() * 2 * Math.PI
+                    val distance = radius + random.nextDouble() * 6 - 3
+
+                    circle = CircleCurve(c, vertex.x() + distance * Math.cos(angle), vertex.y() + distance * Math.sin(angle), radius)
+                }
+
+                val kept = region.withExcluded(listOf(circle)).getPolygonShape() === polygon
+                val touched = overlaps(polygon, circle.getPolygon())
+
+                if (touched != null) {
+                    assertEquals("$abRegion ${circle.toDebugString()}", !touched, kept)
+                } else if (kept) {
+                    // GPC gave up, so the polygon test would have assumed they overlap
+                    assertEquals("$abRegion ${circle.toDebugString()}", 0, MartinezClipper.intersection(polygon, circle.getPolygon()).vertexNumber())
+                }
+
+                if (kept) numKept++ else numTouched++
+            }
+        }
+
+        assertTrue(numKept > 0 && numTouched > 0)
+    }
+
+    /**
+     * @return whether the polygons overlap, null if the clipper rejects them, as it does some multi-ring polygons
+     */
+    private fun overlaps(polygon1: Polygon2D, polygon2: Polygon2D): Boolean? {
+        try {
+            return settings.polygonEngine.clipper.intersection(polygon1, polygon2).vertexNumber() > 0
+        } catch (e: IllegalStateException) {
+            return null
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package icurves.diagram
+
+import icurves.geometry.Geometry
+import icurves.layout.LayoutSettings
+import icurves.util.Examples
+import icurves.util.Profiler
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.awt.geom.Line2D
+import java.awt.geom.Path2D
+import java.util.*
+
+/**
+ * [CurveIndex.crossedBy] against testing every curve, on the curves of laid out examples.
+ */
+class CurveIndexTest {
+
+    private val examples = listOf("Venn-3", "Nested Piercing 1", "Combined All 2", "Edge Route")
+
+    @Test
+    fun sameCurvesAsWithoutIndex() {
+        Profiler.isEnabled = false
+
+        val random = Random(0)
+        var numCrossing = 0
+        var numMissing = 0
+
+        for (settings in listOf(LayoutSettings.DEFAULT, LayoutSettings(useSmooth = false))) {
+            for (name in examples) {
+                val creator = DiagramCreator(settings)
+                creator.createDiagram(Examples.list.first { it.first == name }.second)
+
+                val curves = creator.curveToContour.values.toList()
+                val index = CurveIndex(curves)
+
+                val points = curves.flatMap { it.getPolygon().vertices() }
+                val minX = points.map { it.x() }.min()!!
+                val maxX = points.map { it.x() }.max()!!
+                val minY = points.map { it.y() }.min()!!
+                val maxY = points.map { it.y() }.max()!!
+
+                for (i in 0 until 500) {
+                    val segment: Line2D
+
+                    if (i % 2 == 0) {
+                        // anywhere, mostly across several cells
+                        segment = Line2D.Double(minX + random.nextDouble() * (maxX - minX), minY + random.nextDouble() * (maxY - minY),
+                                minX + random.nextDouble() * (maxX - minX), minY + random.nextDouble() * (maxY - minY))
+                    } else {
+                        // short, starting up to 12px from a curve, in and beyond the margin of the index
+                        val p = points[random.nextInt(points.size)]
+                        val angle = random.nextDouble() * 2 * Math.PI
+                        val offset = random.nextDouble() * 12
+                        val x = p.x() + offset * Math.cos(angle)
+                        val y = p.y() + offset * Math.sin(angle)
+                        val length = random.nextDouble() * 10
+
+                        segment = Line2D.Double(x, y, x + length * Math.cos(angle), y + length * Math.sin(angle))
+                    }
+
+                    val expected = curves.filter { it.isOutlineCrossedBy(segment, 1.0) }
+
+                    assertEquals("$name ${segment.p1} ${segment.p2}", expected, index.crossedBy(segment))
+
+                    if (expected.isEmpty()) numMissing++ else numCrossing++
+                }
+
+                // polylines, as routed edges, are tested on their stroke
+                for (i in 0 until 50) {
+                    val path = Path2D.Double()
+                    path.moveTo(minX + random.nextDouble() * (maxX - minX), minY + random.nextDouble() * (maxY - minY))
+
+                    for (j in 0 until 3) {
+                        path.lineTo(minX + random.nextDouble() * (maxX - minX), minY + random.nextDouble() * (maxY - minY))
+                    }
+
+                    val stroke = Geometry.stroke(path, 1.0)
+
+                    assertEquals(name, curves.filter { Geometry.intersects(it.getOutline(), stroke) }, index.crossedBy(path))
+                }
+            }
+        }
+
+        assertTrue(numCrossing > 0 && numMissing > 0)
+    }
+}
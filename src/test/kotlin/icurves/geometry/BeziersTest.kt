@@ -0,0 +1,113 @@
+package icurves.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.awt.geom.Line2D
+import java.util.*
+
+/**
+ * Flattened Bezier segments stay within the tolerance of the curve and end exactly at its end point.
+ */
+class BeziersTest {
+
+    private val tolerances = listOf(0.01, 0.1, 0.5, 2.0)
+
+    @Test
+    fun quadraticWithinTolerance() {
+        val random = Random(0)
+
+        for (i in 0 until 200) {
+            val c = DoubleArray(6) { random.nextDouble() * 1000 }
+
+            for (tolerance in tolerances) {
+                val points = PackedPolygon.Builder()
+                Beziers.flattenQuad(c[0], c[1], c[2], c[3], c[4], c[5], tolerance, points)
+
+                assertWithinTolerance(c, tolerance, points) { t ->
+                    val s = 1 - t
+                    doubleArrayOf(s * s * c[0] + 2 * s * t * c[2] + t * t * c[4], s * s * c[1] + 2 * s * t * c[3] + t * t * c[5])
+                }
+            }
+        }
+    }
+
+    @Test
+    fun cubicWithinTolerance() {
+        val random = Random(1)
+
+        for (i in 0 until 200) {
+            val c = DoubleArray(8) { random.nextDouble() * 1000 }
+
+            for (tolerance in tolerances) {
+                val points = PackedPolygon.Builder()
+                Beziers.flattenCubic(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], tolerance, points)
+
+                assertWithinTolerance(c, tolerance, points) { t ->
+                    val s = 1 - t
+                    doubleArrayOf(s * s * s * c[0] + 3 * s * s * t * c[2] + 3 * s * t * t * c[4] + t * t * t * c[6],
+                            s * s * s * c[1] + 3 * s * s * t * c[3] + 3 * s * t * t * c[5] + t * t * t * c[7])
+                }
+            }
+        }
+    }
+
+    @Test
+    fun straightSegmentsHaveOneStep() {
+        for (tolerance in tolerances) {
+            val quad = PackedPolygon.Builder()
+            Beziers.flattenQuad(10.0, 20.0, 60.0, 45.0, 110.0, 70.0, tolerance, quad)
+
+            assertEquals(1, quad.size)
+
+            val cubic = PackedPolygon.Builder()
+            Beziers.flattenCubic(10.0, 20.0, 40.0, 35.0, 70.0, 50.0, 100.0, 65.0, tolerance, cubic)
+
+            assertEquals(1, cubic.size)
+        }
+
+        // a bend needs more points the smaller the tolerance
+        val sizes = tolerances.map { tolerance ->
+            val points = PackedPolygon.Builder()
+            Beziers.flattenQuad(0.0, 0.0, 50.0, 100.0, 100.0, 0.0, tolerance, points)
+            points.size
+        }
+
+        assertEquals(sizes.sortedDescending(), sizes)
+        assertTrue(sizes.first() > sizes.last())
+    }
+
+    /**
+     * Samples the curve densely within each step and measures the distance to the chord of that step.
+     *
+     * @param c control point coordinates, the first two being the start, which is not among [points]
+     */
+    private fun assertWithinTolerance(c: DoubleArray, tolerance: Double, points: PackedPolygon.Builder, curve: (Double) -> DoubleArray) {
+        val n = points.size
+
+        assertEquals(c[c.size - 2], points.x(n - 1), 0.0)
+        assertEquals(c[c.size - 1], points.y(n - 1), 0.0)
+
+        // slack for rounding in forward differencing
+        val slack = 1e-9 * 1000
+
+        for (i in 0 until n) {
+            val x1 = if (i == 0) c[0] else points.x(i - 1)
+            val y1 = if (i == 0) c[1] else points.y(i - 1)
+            val x2 = points.x(i)
+            val y2 = points.y(i)
+
+            // points are on the curve
+            val p = curve((i + 1).toDouble() / n)
+            assertEquals(p[0], x2, slack)
+            assertEquals(p[1], y2, slack)
+
+            for (k in 0..20) {
+                val q = curve((i + k / 20.0) / n)
+                val distance = Math.sqrt(Line2D.ptSegDistSq(x1, y1, x2, y2, q[0], q[1]))
+
+                assertTrue("$distance > $tolerance with ${c.toList()}", distance <= tolerance + slack)
+            }
+        }
+    }
+}
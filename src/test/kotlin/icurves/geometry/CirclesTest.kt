@@ -0,0 +1,81 @@
+package icurves.geometry
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Circle predicates just inside and just outside their limits.
+ */
+class CirclesTest {
+
+    private val reach = 0.5 * Math.sqrt(2.0)
+
+    @Test
+    fun containsIsStrict() {
+        assertFalse(Circles.contains(10.0, 20.0, 5.0, 15.0, 20.0))
+        assertTrue(Circles.contains(10.0, 20.0, 5.0, 15.0 - 1e-9, 20.0))
+        assertFalse(Circles.contains(10.0, 20.0, 5.0, 13.0, 24.0))
+        assertTrue(Circles.contains(10.0, 20.0, 5.0, 12.9, 23.9))
+    }
+
+    @Test
+    fun minDistanceToSegment() {
+        // closest to a point inside the segment
+        assertEquals(3.0, Circles.minDistance(0.0, 0.0, -5.0, 3.0, 5.0, 3.0), 1e-12)
+
+        // closest to an end
+        assertEquals(5.0, Circles.minDistance(0.0, 0.0, 3.0, 4.0, 10.0, 4.0), 1e-12)
+
+        // a point
+        assertEquals(5.0, Circles.minDistance(0.0, 0.0, 3.0, 4.0, 3.0, 4.0), 1e-12)
+
+        // through the center
+        assertEquals(0.0, Circles.minDistance(1.0, 1.0, 0.0, 0.0, 2.0, 2.0), 1e-12)
+    }
+
+    @Test
+    fun segmentCrossingThinRing() {
+        // thinner than twice the tolerance, so only a segment from inside to outside meets it for sure
+        assertEquals(true, meetsRing(10.0, 10.5, 9.4, 11.1))
+        assertNull(meetsRing(10.0, 10.5, 9.5, 11.1))
+        assertNull(meetsRing(10.0, 10.5, 9.4, 11.0))
+        assertNull(meetsRing(10.0, 10.5, 10.1, 10.4))
+    }
+
+    @Test
+    fun segmentInsideWideRing() {
+        assertEquals(true, meetsRing(10.0, 20.0, 12.0, 13.0))
+        assertEquals(true, meetsRing(10.0, 20.0, 19.4, 25.0))
+        assertNull(meetsRing(10.0, 20.0, 19.5, 25.0))
+        assertEquals(true, meetsRing(10.0, 20.0, 5.0, 10.6))
+        assertNull(meetsRing(10.0, 20.0, 5.0, 10.5))
+    }
+
+    @Test
+    fun strokedSegmentClearOfRing() {
+        // beyond the outer edge
+        assertEquals(false, meetsRing(10.0, 12.0, 12.5 + reach + 1e-6, 30.0))
+        assertNull(meetsRing(10.0, 12.0, 12.5 + reach - 1e-6, 30.0))
+
+        // within the inner edge
+        assertEquals(false, meetsRing(10.0, 12.0, 1.0, 9.5 - reach - 1e-6))
+        assertNull(meetsRing(10.0, 12.0, 1.0, 9.5 - reach + 1e-6))
+    }
+
+    @Test
+    fun tangentSegmentIsUndecided() {
+        // touches the outer edge at (0, 12)
+        assertNull(Circles.segmentMeetsRing(0.0, 0.0, 10.0, 12.0, -5.0, 12.0, 5.0, 12.0, 0.0, 0.1))
+        assertEquals(false, Circles.segmentMeetsRing(0.0, 0.0, 10.0, 12.0, -5.0, 12.2, 5.0, 12.2, 0.0, 0.1))
+    }
+
+    /**
+     * Radial segment from [from] to [to] on the x axis, stroked with half width 0.5, against a ring around the origin, with tolerance 0.5.
+     */
+    private fun meetsRing(innerRadius: Double, outerRadius: Double, from: Double, to: Double): Boolean? {
+        return Circles.segmentMeetsRing(0.0, 0.0, innerRadius, outerRadius, from, 0.0, to, 0.0, 0.5, 0.5)
+    }
+}
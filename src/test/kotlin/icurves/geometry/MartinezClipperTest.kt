@@ -0,0 +1,178 @@
+package icurves.geometry
+
+import icurves.diagram.DiagramCreator
+import icurves.layout.LayoutSettings
+import icurves.util.Examples
+import icurves.util.Profiler
+import math.geom2d.polygon.Polygon2D
+import math.geom2d.polygon.SimplePolygon2D
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.awt.geom.Area
+import java.awt.geom.Path2D
+import java.awt.geom.PathIterator
+
+/**
+ * [MartinezClipper] must cover the same area as [JavaGeomClipper].
+ * Ring counts may differ, GPC keeps rings of zero area that the sweep drops.
+ */
+class MartinezClipperTest {
+
+    private val examples = listOf("Venn-4", "Nested Piercing 1", "Double Piercing 3", "Combined All 2", "Combined Piercing 1")
+
+    @Test
+    fun squares() {
+        val square = square(0.0, 0.0, 100.0)
+
+        // overlapping, sharing part of an edge, sharing a whole edge, nested, apart
+        for (other in listOf(square(50.0, 50.0, 100.0), square(50.0, 0.0, 100.0), square(100.0, 0.0, 100.0),
+                square(25.0, 25.0, 50.0), square(200.0, 200.0, 10.0), square(0.0, 0.0, 100.0))) {
+
+            assertSameOperations(square, other)
+            assertSameOperations(other, square)
+        }
+    }
+
+    @Test
+    fun unionsOfNeighbouringRegions() {
+        Profiler.isEnabled = false
+
+        var numPairs = 0
+
+        for (name in examples) {
+            val creator = DiagramCreator(LayoutSettings.DEFAULT)
+            creator.createDiagram(Examples.list.first { it.first == name }.second)
+
+            val regions = creator.basicRegions
+
+            for (i in regions.indices) {
+                for (j in i + 1 until regions.size) {
+                    if (!regions[i].abRegion.getStraddledContour(regions[j].abRegion).isPresent)
+                        continue
+
+                    val polygon1 = regions[i].getPolygonShape()
+                    val polygon2 = regions[j].getPolygonShape()
+
+                    assertSameArea("$name ${regions[i].abRegion} ${regions[j].abRegion}",
+                            JavaGeomClipper.union(polygon1, polygon2), MartinezClipper.union(polygon1, polygon2))
+
+                    numPairs++
+                }
+            }
+        }
+
+        assertTrue(numPairs > 0)
+    }
+
+    @Test
+    fun regionsCutOutOfCurves() {
+        Profiler.isEnabled = false
+
+        for (name in examples) {
+            val creator = DiagramCreator(LayoutSettings.DEFAULT)
+            creator.createDiagram(Examples.list.first { it.first == name }.second)
+
+            val curves = creator.curveToContour
+
+            for (region in creator.basicRegions) {
+                var gpc: Polygon2D = LayoutSettings.DEFAULT.geomBBox
+                var martinez: Polygon2D = gpc
+
+                for ((abstractCurve, curve) in curves) {
+                    if (region.abRegion.contains(abstractCurve)) {
+                        gpc = JavaGeomClipper.intersection(gpc, curve.getPolygon())
+                        martinez = MartinezClipper.intersection(martinez, curve.getPolygon())
+                    } else {
+                        gpc = JavaGeomClipper.difference(gpc, curve.getPolygon())
+                        martinez = MartinezClipper.difference(martinez, curve.getPolygon())
+                    }
+                }
+
+                assertSameArea("$name ${region.abRegion}", gpc, martinez)
+            }
+        }
+    }
+
+    private fun assertSameOperations(polygon1: Polygon2D, polygon2: Polygon2D) {
+        assertSameArea("intersection", JavaGeomClipper.intersection(polygon1, polygon2), MartinezClipper.intersection(polygon1, polygon2))
+        assertSameArea("difference", JavaGeomClipper.difference(polygon1, polygon2), MartinezClipper.difference(polygon1, polygon2))
+        assertSameArea("union", JavaGeomClipper.union(polygon1, polygon2), MartinezClipper.union(polygon1, polygon2))
+    }
+
+    private fun assertSameArea(message: String, expected: Polygon2D, actual: Polygon2D) {
+        val expectedArea = areaOf(expected)
+        val difference = Area(expectedArea)
+        difference.exclusiveOr(areaOf(actual))
+
+        val size = size(expectedArea)
+
+        assertEquals(message, 0.0, size(difference), 1e-6 * Math.max(1.0, size) + 1e-3)
+        assertEquals(message, Math.abs(expected.area()), Math.abs(actual.area()), 1e-3 * Math.max(1.0, size))
+    }
+
+    private fun square(x: Double, y: Double, size: Double): Polygon2D {
+        return SimplePolygon2D(doubleArrayOf(x, x + size, x + size, x), doubleArrayOf(y, y, y + size, y + size))
+    }
+
+    /**
+     * @return area covered by the rings of [polygon] by the even-odd rule
+     */
+    private fun areaOf(polygon: Polygon2D): Area {
+        val path = Path2D.Double(Path2D.WIND_EVEN_ODD)
+
+        for (ring in polygon.contours()) {
+            ring.vertices().forEachIndexed { i, p ->
+                if (i == 0)
+                    path.moveTo(p.x(), p.y())
+                else
+                    path.lineTo(p.x(), p.y())
+            }
+
+            path.closePath()
+        }
+
+        return Area(path)
+    }
+
+    /**
+     * @return size of the straight-edged [area]
+     */
+    private fun size(area: Area): Double {
+        val it = area.getPathIterator(null)
+        val coordinates = DoubleArray(6)
+
+        var size = 0.0
+        var startX = 0.0
+        var startY = 0.0
+        var lastX = 0.0
+        var lastY = 0.0
+
+        while (!it.isDone) {
+            when (it.currentSegment(coordinates)) {
+                PathIterator.SEG_MOVETO -> {
+                    startX = coordinates[0]
+                    startY = coordinates[1]
+                    lastX = startX
+                    lastY = startY
+                }
+
+                PathIterator.SEG_LINETO -> {
+                    size += lastX * coordinates[1] - coordinates[0] * lastY
+                    lastX = coordinates[0]
+                    lastY = coordinates[1]
+                }
+
+                PathIterator.SEG_CLOSE -> {
+                    size += lastX * startY - startX * lastY
+                    lastX = startX
+                    lastY = startY
+                }
+            }
+
+            it.next()
+        }
+
+        return Math.abs(size / 2)
+    }
+}
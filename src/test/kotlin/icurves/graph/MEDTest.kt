@@ -0,0 +1,78 @@
+package icurves.graph
+
+import icurves.decomposition.DecomposerFactory
+import icurves.diagram.DiagramCreator
+import icurves.layout.LayoutSettings
+import icurves.recomposition.RecomposerFactory
+import icurves.util.Examples
+import icurves.util.Profiler
+import javafx.scene.shape.Line
+import javafx.scene.shape.Polyline
+import javafx.scene.shape.Shape
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * An MED built from the MED of an earlier step must equal one built from scratch.
+ */
+class MEDTest {
+
+    private val examples = listOf("Venn-4", "Single Piercing 2", "Double Piercing 3", "Combined Piercing 1", "Combined All 2", "Edge Route")
+
+    @Test
+    fun incrementalMEDEqualsFreshMED() {
+        Profiler.isEnabled = false
+
+        val settings = LayoutSettings(useSmooth = false, showMED = true)
+
+        for (name in examples) {
+            val description = Examples.list.first { it.first == name }.second
+
+            val dSteps = DecomposerFactory.newDecomposer(settings.decompType).decompose(description)
+            val rSteps = RecomposerFactory.newRecomposer().recompose(dSteps)
+
+            var numChecked = 0
+
+            // the last MED of each prefix is built from the MED of an earlier step
+            for (numSteps in 2..rSteps.size) {
+                val creator = DiagramCreator(settings)
+
+                try {
+                    creator.createDiagram(description, rSteps.subList(0, numSteps))
+                } catch (e: RuntimeException) {
+                    // a layout only needs an MED where a curve is embedded by a cycle,
+                    // the diagrams of other prefixes may have regions that cannot be routed
+                    if (e.message?.startsWith("Failed to route edge") != true)
+                        throw e
+
+                    continue
+                }
+
+                val med = creator.modifiedDual
+                assertNotNull(med)
+
+                val fresh = med!!.rebuild()
+
+                val step = "$name, step $numSteps"
+                assertEquals(step, fresh.nodes.map { nodeString(it) }, med.nodes.map { nodeString(it) })
+                assertEquals(step, fresh.edges.map { edgeString(it) }, med.edges.map { edgeString(it) })
+
+                numChecked++
+            }
+
+            assertTrue(name, numChecked > 0)
+        }
+    }
+
+    private fun nodeString(node: EulerDualNode) = "${node.zone.abRegion} ${node.point}"
+
+    private fun edgeString(edge: EulerDualEdge) = "${nodeString(edge.v1)} - ${nodeString(edge.v2)} ${shapeString(edge.curve)}"
+
+    private fun shapeString(shape: Shape) = when (shape) {
+        is Line -> "line ${shape.startX} ${shape.startY} ${shape.endX} ${shape.endY}"
+        is Polyline -> "polyline ${shape.points}"
+        else -> shape.toString()
+    }
+}
@@ -0,0 +1,73 @@
+package icurves.util
+
+import icurves.description.AbstractBasicRegion
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+
+/**
+ * Shapes of generated families, and the same descriptions for the same seed.
+ */
+class DescriptionGeneratorTest {
+
+    @Test
+    fun sameSeedGivesSameDescription() {
+        for (seed in 0L until 10L) {
+            assertEquals(DescriptionGenerator.random(12, 0.6, seed).getInformalDescription(),
+                    DescriptionGenerator.random(12, 0.6, seed).getInformalDescription())
+
+            assertEquals(DescriptionGenerator.randomSubsets(6, 0.3, seed).getInformalDescription(),
+                    DescriptionGenerator.randomSubsets(6, 0.3, seed).getInformalDescription())
+        }
+    }
+
+    @Test
+    fun vennHasAllZones() {
+        for (n in 1..8) {
+            val description = DescriptionGenerator.venn(n)
+
+            assertEquals(n, description.curves.size)
+            assertEquals(1 shl n, description.zones.size)
+        }
+    }
+
+    @Test
+    fun nestingDepthIsRespected() {
+        for (depth in 2..5) {
+            for (n in 1..12) {
+                val description = DescriptionGenerator.nested(n, depth)
+                val first = description.curves.first { it.label == "a" }
+                val zones = description.zones.filter { it != AbstractBasicRegion.OUTSIDE }
+
+                assertEquals(n, zones.size)
+                assertTrue(zones.all { it.contains(first) })
+                assertEquals(Math.min(n, depth), zones.map { it.getNumCurves() }.max())
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun nestedRejectsDepthBelowTwo() {
+        DescriptionGenerator.nested(5, 1)
+    }
+
+    @Test
+    fun nestedFromCommandLineDefaultsToDepthTwo() {
+        val out = System.out
+        val bytes = ByteArrayOutputStream()
+        System.setOut(PrintStream(bytes))
+
+        try {
+            DescriptionGenerator.main(arrayOf("nested", "3", "4"))
+        } finally {
+            System.setOut(out)
+        }
+
+        val expected = listOf(DescriptionGenerator.nested(3, 2), DescriptionGenerator.nested(4, 2))
+                .map { it.getInformalDescription() }
+
+        assertEquals(expected, bytes.toString().lines().filter { it.isNotEmpty() })
+    }
+}